@@ -6,4 +6,18 @@ import org.chess.utils.Move;
 public interface Agent {
   public Move decideMove(Game game);
   public String choosePromotion(Game game, Move move);
+
+  /**
+   * Asks a running {@link #decideMove(Game)} to return early. Agents that
+   * answer at once need not override it.
+   */
+  public default void stop() {
+  }
+
+  /**
+   * Called when a decision is submitted to run on another thread, before it
+   * starts: a {@link #stop()} from then on applies to that decision too.
+   */
+  public default void prepare() {
+  }
 }
@@ -0,0 +1,98 @@
+package org.ai;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.chess.Game;
+import org.chess.utils.Move;
+
+/**
+ * Runs agent decisions off the UI thread, one at a time on a single daemon
+ * worker, and hands each one back as a {@link CompletableFuture}.
+ *
+ * A new decision supersedes the previous one, and {@link #cancel()} drops the
+ * current one: a decision still queued never runs, and a running one is asked
+ * to {@link Agent#stop() stop}, so an abandoned search frees the worker
+ * quickly. A cancelled future never completes normally, so callbacks chained
+ * on it cannot apply a stale move.
+ */
+public class AgentExecutor implements AutoCloseable {
+  /**
+   * @param move  the chosen move, null when the agent found none
+   * @param nanos time the agent took to decide
+   */
+  public record Decision(Move move, long nanos) {
+  }
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "agent-decision");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+
+  private CompletableFuture<Decision> current;
+  private Agent currentAgent;
+
+  /**
+   * Starts a decision of {@code agent} on {@code position}, cancelling the one
+   * in progress. The position should be a detached copy, see
+   * {@link Game#Game(Game)}, since the live game keeps changing.
+   */
+  public synchronized CompletableFuture<Decision> submit(Agent agent, Game position) {
+    cancel();
+    // from here a cancel stops this decision, even before it starts
+    agent.prepare();
+    CompletableFuture<Decision> future = CompletableFuture.supplyAsync(() -> {
+      long start = System.nanoTime();
+      Move move = agent.decideMove(position);
+      return new Decision(move, System.nanoTime() - start);
+    }, worker);
+    future.thenAccept(decision -> {
+      completed.increment();
+      totalNanos.add(decision.nanos());
+    });
+    current = future;
+    currentAgent = agent;
+    return future;
+  }
+
+  /**
+   * Cancels the current decision, if one is queued or running.
+   */
+  public synchronized boolean cancel() {
+    CompletableFuture<Decision> future = current;
+    current = null;
+    if (future == null || !future.cancel(false))
+      return false;
+    currentAgent.stop();
+    cancelled.increment();
+    return true;
+  }
+
+  public long completed() {
+    return completed.sum();
+  }
+
+  public long cancelled() {
+    return cancelled.sum();
+  }
+
+  /**
+   * Mean time of the completed decisions, in nanoseconds.
+   */
+  public long averageNanos() {
+    long n = completed.sum();
+    return n == 0 ? 0 : totalNanos.sum() / n;
+  }
+
+  @Override
+  public void close() {
+    cancel();
+    worker.shutdownNow();
+  }
+}
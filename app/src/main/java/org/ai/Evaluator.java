@@ -0,0 +1,36 @@
+package org.ai;
+
+import org.chess.board.Board;
+import org.chess.board.PieceSquare;
+
+/**
+ * Static evaluation in centipawns from the side to move's point of view:
+ * tapered material and piece-square values. The board maintains the sums on
+ * every move, so {@link #evaluate(Board)} only blends them;
+ * {@link #evaluateFull(Board)} rescans the board and is kept to cross-check
+ * the incremental sums, which runs on every call when assertions are enabled.
+ */
+public final class Evaluator {
+  // indexed by board type code, for exchange and pruning margins
+  static final int[] PIECE_VALUES = { 0, 100, 500, 320, 330, 900, 0 };
+
+  private Evaluator() {
+  }
+
+  public static int evaluate(Board board) {
+    assert isInSync(board) : "incremental evaluation out of sync";
+    int score = PieceSquare.taper(board.getMgScore(), board.getEgScore(), board.getPhase());
+    return board.getSideToMove() == Board.WHITE ? score : -score;
+  }
+
+  private static boolean isInSync(Board board) {
+    int[] sums = PieceSquare.compute(board);
+    return board.getMgScore() == sums[0] && board.getEgScore() == sums[1] && board.getPhase() == sums[2];
+  }
+
+  public static int evaluateFull(Board board) {
+    int[] sums = PieceSquare.compute(board);
+    int score = PieceSquare.taper(sums[0], sums[1], sums[2]);
+    return board.getSideToMove() == Board.WHITE ? score : -score;
+  }
+}
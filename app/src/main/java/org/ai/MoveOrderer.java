@@ -0,0 +1,121 @@
+package org.ai;
+
+import org.chess.board.Board;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+
+/**
+ * Move ordering for one search thread: the hash move first, then captures and
+ * queen promotions by MVV-LVA (most valuable victim, least valuable
+ * attacker), then the two killer moves of the ply, then quiet moves by their
+ * butterfly history score, and underpromotions last.
+ *
+ * Moves are scored once per node and picked lazily with
+ * {@link #next(MoveList, int[], int)}, so a node that cuts off early does not
+ * pay for a full sort.
+ */
+public class MoveOrderer {
+  private static final int HASH_MOVE = 1 << 30;
+  private static final int CAPTURE = 1 << 26;
+  private static final int FIRST_KILLER = 1 << 25;
+  private static final int SECOND_KILLER = FIRST_KILLER - 1;
+  private static final int UNDERPROMOTION = -1;
+  // history scores are halved once one reaches this, keeping them below the killers
+  private static final int HISTORY_LIMIT = 1 << 20;
+
+  // indexed by board type code; the king is the last attacker to try
+  private static final int[] MVV_LVA_VALUES = { 0, 1, 5, 3, 3, 9, 20 };
+
+  private final int[][] killers = new int[Search.MAX_PLY][2];
+  // history[side][from][to]
+  private final int[][][] history = new int[2][Board.SQUARES][Board.SQUARES];
+
+  public void score(MoveList moves, int[] scores, int hashMove, int ply, int side) {
+    int[] plyKillers = killers[ply];
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      int score;
+      if (move == hashMove)
+        score = HASH_MOVE;
+      else if (Moves.special(move) == Moves.CORONATION && Moves.promotion(move) != Board.QUEEN)
+        score = UNDERPROMOTION;
+      else if (Moves.isCapture(move) || Moves.special(move) == Moves.CORONATION)
+        score = CAPTURE + MVV_LVA_VALUES[Moves.captured(move)] * 64 + MVV_LVA_VALUES[Moves.promotion(move)] * 8
+            - MVV_LVA_VALUES[Moves.piece(move)];
+      else if (move == plyKillers[0])
+        score = FIRST_KILLER;
+      else if (move == plyKillers[1])
+        score = SECOND_KILLER;
+      else
+        score = history[side][Moves.from(move)][Moves.to(move)];
+      scores[i] = score;
+    }
+  }
+
+  /**
+   * Moves the best scored move at or after {@code index} to {@code index} and
+   * returns it.
+   */
+  public static int next(MoveList moves, int[] scores, int index) {
+    int best = index;
+    for (int i = index + 1; i < moves.size(); i++) {
+      if (scores[i] > scores[best])
+        best = i;
+    }
+    if (best != index) {
+      moves.swap(index, best);
+      int score = scores[index];
+      scores[index] = scores[best];
+      scores[best] = score;
+    }
+    return moves.get(index);
+  }
+
+  public static boolean isQuiet(int move) {
+    return !Moves.isCapture(move) && Moves.special(move) != Moves.CORONATION;
+  }
+
+  /**
+   * Captures and queen promotions, the moves scored above the killers.
+   */
+  public static boolean isTactical(int move) {
+    return Moves.special(move) == Moves.CORONATION ? Moves.promotion(move) == Board.QUEEN
+        : Moves.isCapture(move);
+  }
+
+  /**
+   * Records a quiet move that caused a beta cutoff.
+   */
+  public void onCutoff(int move, int ply, int side, int depth) {
+    int[] plyKillers = killers[ply];
+    if (plyKillers[0] != move) {
+      plyKillers[1] = plyKillers[0];
+      plyKillers[0] = move;
+    }
+    int[] row = history[side][Moves.from(move)];
+    row[Moves.to(move)] += depth * depth;
+    if (row[Moves.to(move)] >= HISTORY_LIMIT)
+      halveHistory();
+  }
+
+  /**
+   * Forgets the killers and halves the history, so the next search starts
+   * from what the last one learned without being ruled by it.
+   */
+  public void age() {
+    for (int[] plyKillers : killers) {
+      plyKillers[0] = Moves.NONE;
+      plyKillers[1] = Moves.NONE;
+    }
+    halveHistory();
+  }
+
+  private void halveHistory() {
+    for (int[][] side : history) {
+      for (int[] row : side) {
+        for (int to = 0; to < row.length; to++)
+          row[to] >>= 1;
+      }
+    }
+  }
+}
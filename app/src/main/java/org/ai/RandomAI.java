@@ -15,6 +15,10 @@ public class RandomAI extends Player implements Agent {
     super(PlayerType.RandomAI);
   }
 
+  public RandomAI(int id) {
+    super(PlayerType.RandomAI, id);
+  }
+
   @Override
   public Move decideMove(Game game) {
     ArrayList<Move> allMoves = game.getAllLegalMoves(id);
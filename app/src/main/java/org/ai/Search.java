@@ -0,0 +1,412 @@
+package org.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.chess.board.Attacks;
+import org.chess.board.Board;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.chess.tablebase.Table;
+import org.chess.tablebase.Tablebase;
+
+/**
+ * Negamax alpha-beta search with iterative deepening. Each call searches a
+ * private copy of the given board, so the caller's position is never touched
+ * and may keep changing while the search runs.
+ *
+ * The search stops at the first exhausted limit of its {@link SearchLimits} or
+ * as soon as {@link #stop()} is called from another thread, and then returns
+ * the best move of the last completed iteration. Each search has a stop signal
+ * of its own, taken when it starts: one readied with {@link #prepare()} when
+ * the search was submitted, so a stop sent before it starts is kept, or a
+ * fresh one.
+ *
+ * Results are stored in a {@link TranspositionTable}, which may be shared
+ * with other searches. Leaves are resolved by a quiescence search over
+ * captures and queen promotions. With a {@link Tablebase} set, positions it
+ * covers are scored from it instead of searched, and a root position it
+ * covers is answered with its best move straight away.
+ */
+public class Search {
+  public static final int MAX_PLY = 128;
+  public static final int MATE = 30_000;
+  private static final int INFINITY = 32_000;
+  // how many nodes pass between two clock reads
+  private static final int CHECK_INTERVAL = 2048;
+  // slack for positional gains when skipping captures that cannot raise alpha
+  private static final int DELTA_MARGIN = 200;
+
+  /**
+   * Told about every completed iteration of a search, on the search thread.
+   */
+  public interface Listener {
+    /**
+     * @param result the best move and score so far, with the time and nodes
+     *               spent since the search started
+     * @param pv     the expected line from the root, best move first
+     */
+    void onIteration(SearchResult result, int[] pv);
+  }
+
+  private final TranspositionTable table;
+  private final Board board = new Board();
+  private final MoveList[] plies = new MoveList[MAX_PLY];
+  private final int[][] scores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+  private final MoveOrderer orderer = new MoveOrderer();
+  private final long[] keys = new long[MAX_PLY];
+
+  private volatile Tablebase tablebase;
+  private volatile Listener listener;
+  // signal readied for the next search, and the one of the search last started
+  private AtomicBoolean preparedSignal;
+  private AtomicBoolean runningSignal;
+  // signal of the search on this thread
+  private AtomicBoolean stopSignal;
+  private boolean stopped;
+  private long nodes;
+  private long maxNodes;
+  private long deadline;
+
+  public Search() {
+    this(new TranspositionTable());
+  }
+
+  public Search(TranspositionTable table) {
+    this.table = table;
+    for (int i = 0; i < MAX_PLY; i++)
+      plies[i] = new MoveList();
+  }
+
+  /**
+   * Asks the running search to return as soon as possible, and the prepared
+   * one to return as soon as it starts. Safe to call from any thread; a search
+   * started afterwards without {@link #prepare()} runs normally.
+   */
+  public synchronized void stop() {
+    if (preparedSignal != null)
+      preparedSignal.set(true);
+    if (runningSignal != null)
+      runningSignal.set(true);
+  }
+
+  /**
+   * Readies the stop signal of the next search. Call it when the search is
+   * handed to another thread, so that a {@link #stop()} in between applies to
+   * it; the search still running, if any, keeps its own signal.
+   */
+  public synchronized void prepare() {
+    preparedSignal = new AtomicBoolean();
+  }
+
+  // the prepared signal, or a fresh one, which becomes the running signal
+  synchronized AtomicBoolean takeSignal() {
+    AtomicBoolean signal = preparedSignal != null ? preparedSignal : new AtomicBoolean();
+    preparedSignal = null;
+    runningSignal = signal;
+    return signal;
+  }
+
+  public void setTablebase(Tablebase tablebase) {
+    this.tablebase = tablebase;
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  public SearchResult search(Board position, SearchLimits limits) {
+    table.newSearch();
+    return run(position, limits, 0, takeSignal());
+  }
+
+  /**
+   * Searches as thread {@code thread} of a {@link SmpSearch}, 0 being the
+   * main thread. Helpers start at an odd or even depth and rotate the root
+   * moves so they do not all walk the same tree in step. The search returns
+   * once {@code stopSignal} is set.
+   */
+  SearchResult run(Board position, SearchLimits limits, int thread, AtomicBoolean stopSignal) {
+    long start = System.nanoTime();
+    this.stopSignal = stopSignal;
+    board.copyFrom(position);
+    orderer.age();
+    stopped = false;
+    nodes = 0;
+    maxNodes = limits.nodes();
+    deadline = limits.moveTimeMillis() > 0 ? start + limits.moveTimeMillis() * 1_000_000L : 0;
+    int maxDepth = limits.depth() > 0 ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+    MoveList rootMoves = plies[0];
+    MoveGenerator.generateLegal(board, board.getSideToMove(), rootMoves);
+    if (rootMoves.isEmpty())
+      return new SearchResult(Moves.NONE, isInCheck() ? -MATE : 0, 0, 0, System.nanoTime() - start);
+    Tablebase tablebase = this.tablebase;
+    if (tablebase != null && board.pieceCount() <= tablebase.maxPieces()) {
+      int move = tablebase.bestMove(board);
+      if (move != Moves.NONE) {
+        SearchResult result = new SearchResult(move, tablebaseScore(tablebase.probe(board), 0), 0, 0,
+            System.nanoTime() - start);
+        Listener listener = this.listener;
+        if (listener != null)
+          listener.onIteration(result, new int[] { move });
+        return result;
+      }
+    }
+    // copy the root moves, since plies[0] is reused by the search
+    MoveList moves = new MoveList(rootMoves.size());
+    for (int i = 0; i < rootMoves.size(); i++)
+      moves.add(rootMoves.get((i + thread) % rootMoves.size()));
+
+    int bestMove = moves.get(0);
+    int bestScore = 0;
+    int completedDepth = 0;
+    for (int depth = 1 + thread % 2; depth <= maxDepth; depth++) {
+      int iterationMove = Moves.NONE;
+      int alpha = -INFINITY;
+      keys[0] = board.getKey();
+      for (int i = 0; i < moves.size(); i++) {
+        int move = moves.get(i);
+        board.makeMove(move);
+        int score = -negamax(depth - 1, -INFINITY, -alpha, 1);
+        board.unmakeMove();
+        if (stopped)
+          break;
+        if (score > alpha) {
+          alpha = score;
+          iterationMove = move;
+          // search the best move first in the next iteration
+          for (int j = i; j > 0; j--)
+            moves.swap(j, j - 1);
+        }
+      }
+      if (stopped)
+        break;
+      bestMove = iterationMove;
+      bestScore = alpha;
+      completedDepth = depth;
+      table.store(keys[0], bestMove, toTable(bestScore, 0), depth, TranspositionTable.EXACT);
+      Listener listener = this.listener;
+      if (listener != null)
+        listener.onIteration(new SearchResult(bestMove, bestScore, depth, nodes, System.nanoTime() - start),
+            principalVariation(bestMove, depth));
+      // a forced mate will not get any shorter with more depth
+      if (Math.abs(bestScore) >= MATE - depth)
+        break;
+    }
+    return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Follows the table's best moves from the root, after {@code first}, for up
+   * to {@code length} moves. The line ends early at a move the table lost, an
+   * illegal move from a key collision, or a repetition.
+   */
+  private int[] principalVariation(int first, int length) {
+    int[] pv = new int[length];
+    MoveList legal = new MoveList();
+    int count = 0;
+    for (int move = first; move != Moves.NONE && count < length; count++) {
+      pv[count] = move;
+      board.makeMove(move);
+      keys[count + 1] = board.getKey();
+      if (isRepetition(count + 1)) {
+        count++;
+        break;
+      }
+      move = Moves.NONE;
+      long entry = table.probe(keys[count + 1]);
+      int hashMove = entry == 0 ? Moves.NONE : TranspositionTable.move(entry);
+      if (hashMove != Moves.NONE) {
+        MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+        for (int i = 0; i < legal.size(); i++) {
+          if (legal.get(i) == hashMove)
+            move = hashMove;
+        }
+      }
+    }
+    for (int i = 0; i < count; i++)
+      board.unmakeMove();
+    return Arrays.copyOf(pv, count);
+  }
+
+  private int negamax(int depth, int alpha, int beta, int ply) {
+    if (depth == 0)
+      return quiesce(alpha, beta, ply);
+    if (outOfBudget())
+      return 0;
+
+    keys[ply] = board.getKey();
+    if (isRepetition(ply))
+      return 0;
+    if (ply == MAX_PLY - 1)
+      return Evaluator.evaluate(board);
+    Tablebase tablebase = this.tablebase;
+    if (tablebase != null && board.pieceCount() <= tablebase.maxPieces()) {
+      int value = tablebase.probe(board);
+      if (value != Tablebase.NOT_FOUND)
+        return tablebaseScore(value, ply);
+    }
+
+    int hashMove = Moves.NONE;
+    long entry = table.probe(keys[ply]);
+    if (entry != 0) {
+      hashMove = TranspositionTable.move(entry);
+      if (TranspositionTable.depth(entry) >= depth) {
+        int score = fromTable(TranspositionTable.score(entry), ply);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && score >= beta
+            || bound == TranspositionTable.UPPER && score <= alpha)
+          return score;
+      }
+    }
+
+    MoveList moves = plies[ply];
+    MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+    if (moves.isEmpty())
+      return isInCheck() ? -MATE + ply : 0;
+    int side = board.getSideToMove();
+    int[] moveScores = scores[ply];
+    orderer.score(moves, moveScores, hashMove, ply, side);
+
+    int originalAlpha = alpha;
+    int bestMove = Moves.NONE;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = MoveOrderer.next(moves, moveScores, i);
+      board.makeMove(move);
+      int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+      board.unmakeMove();
+      if (stopped)
+        return 0;
+      if (score > alpha) {
+        alpha = score;
+        bestMove = move;
+        if (alpha >= beta) {
+          if (MoveOrderer.isQuiet(move))
+            orderer.onCutoff(move, ply, side, depth);
+          break;
+        }
+      }
+    }
+
+    int bound = alpha >= beta ? TranspositionTable.LOWER
+        : alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+    table.store(keys[ply], bestMove, toTable(alpha, ply), depth, bound);
+    return alpha;
+  }
+
+  private static int tablebaseScore(int value, int ply) {
+    if (Table.isWin(value))
+      return MATE - ply - Table.plies(value);
+    if (Table.isLoss(value))
+      return -MATE + ply + Table.plies(value);
+    return 0;
+  }
+
+  // mate scores are stored relative to the node, not the root
+  private static int toTable(int score, int ply) {
+    if (score >= MATE - MAX_PLY)
+      return score + ply;
+    if (score <= -MATE + MAX_PLY)
+      return score - ply;
+    return score;
+  }
+
+  private static int fromTable(int score, int ply) {
+    if (score >= MATE - MAX_PLY)
+      return score - ply;
+    if (score <= -MATE + MAX_PLY)
+      return score + ply;
+    return score;
+  }
+
+  public TranspositionTable getTable() {
+    return table;
+  }
+
+  /**
+   * Searches captures and queen promotions only, so the static evaluation is
+   * never taken halfway through an exchange. The side to move may stand pat
+   * on the evaluation, except in check, where every evasion is searched.
+   * Captures that cannot lift the score to alpha, or that lose material by
+   * static exchange, are skipped without being played.
+   */
+  private int quiesce(int alpha, int beta, int ply) {
+    if (outOfBudget())
+      return 0;
+    if (ply == MAX_PLY - 1)
+      return Evaluator.evaluate(board);
+
+    boolean inCheck = isInCheck();
+    int standPat = -INFINITY;
+    if (!inCheck) {
+      standPat = Evaluator.evaluate(board);
+      if (standPat >= beta)
+        return standPat;
+      if (standPat > alpha)
+        alpha = standPat;
+    }
+
+    MoveList moves = plies[ply];
+    MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+    if (moves.isEmpty())
+      return inCheck ? -MATE + ply : 0;
+    int[] moveScores = scores[ply];
+    orderer.score(moves, moveScores, Moves.NONE, ply, board.getSideToMove());
+
+    for (int i = 0; i < moves.size(); i++) {
+      int move = MoveOrderer.next(moves, moveScores, i);
+      if (!inCheck) {
+        // captures and queen promotions are ordered first
+        if (!MoveOrderer.isTactical(move))
+          break;
+        int gain = Evaluator.PIECE_VALUES[Moves.captured(move)];
+        if (Moves.special(move) == Moves.CORONATION)
+          gain += Evaluator.PIECE_VALUES[Board.QUEEN] - Evaluator.PIECE_VALUES[Board.PAWN];
+        if (standPat + gain + DELTA_MARGIN <= alpha || !StaticExchange.isAtLeast(board, move, 0))
+          continue;
+      }
+      board.makeMove(move);
+      int score = -quiesce(-beta, -alpha, ply + 1);
+      board.unmakeMove();
+      if (stopped)
+        return 0;
+      if (score > alpha) {
+        alpha = score;
+        if (alpha >= beta)
+          break;
+      }
+    }
+    return alpha;
+  }
+
+  // counts a node and reports whether the search has to unwind
+  private boolean outOfBudget() {
+    if (++nodes % CHECK_INTERVAL == 0)
+      checkLimits();
+    if (maxNodes > 0 && nodes >= maxNodes)
+      stopped = true;
+    return stopped;
+  }
+
+  private void checkLimits() {
+    if (stopSignal.get() || deadline > 0 && System.nanoTime() >= deadline)
+      stopped = true;
+  }
+
+  // only positions inside the search tree are compared, two plies apart
+  private boolean isRepetition(int ply) {
+    for (int i = ply - 2; i >= 0; i -= 2) {
+      if (keys[i] == keys[ply])
+        return true;
+    }
+    return false;
+  }
+
+  private boolean isInCheck() {
+    int side = board.getSideToMove();
+    int king = board.kingSquare(side);
+    return king != Board.NO_SQUARE && Attacks.isSquareAttacked(board, king, side ^ 1);
+  }
+}
@@ -0,0 +1,121 @@
+package org.ai;
+
+import org.chess.Game;
+import org.chess.board.Board;
+import org.chess.board.Moves;
+import org.chess.players.Player;
+import org.chess.players.PlayerType;
+import org.chess.tablebase.Tablebase;
+import org.chess.utils.Move;
+
+public class SearchAI extends Player implements Agent {
+  public static final long DEFAULT_MOVE_TIME = 1000;
+
+  private final SmpSearch search;
+  private volatile SearchLimits limits;
+  private volatile SearchResult lastResult;
+
+  public SearchAI() {
+    this(SearchLimits.moveTime(DEFAULT_MOVE_TIME));
+  }
+
+  public SearchAI(SearchLimits limits) {
+    this(limits, 1);
+  }
+
+  /**
+   * @param threads search threads, more than one runs a {@link SmpSearch}
+   */
+  public SearchAI(SearchLimits limits, int threads) {
+    super(PlayerType.SearchAI);
+    this.limits = limits;
+    search = new SmpSearch(threads);
+  }
+
+  /**
+   * A single threaded player with a fixed id and its own table, for headless
+   * games; see {@link Player#Player(PlayerType, int)}.
+   */
+  public SearchAI(int id, SearchLimits limits, TranspositionTable table) {
+    this(id, limits, 1, table);
+  }
+
+  /**
+   * @param threads search threads, more than one runs a {@link SmpSearch}
+   */
+  public SearchAI(int id, SearchLimits limits, int threads, TranspositionTable table) {
+    super(PlayerType.SearchAI, id);
+    this.limits = limits;
+    search = new SmpSearch(threads, table);
+  }
+
+  @Override
+  public Move decideMove(Game game) {
+    SearchResult result = search.search(game.getBoard(), limits);
+    lastResult = result;
+    return result.bestMove() == Moves.NONE ? null : game.toMove(result.bestMove());
+  }
+
+  /**
+   * The piece of the last search's best move when that is the move being
+   * played, otherwise a queen.
+   */
+  @Override
+  public String choosePromotion(Game game, Move move) {
+    SearchResult result = lastResult;
+    int best = result == null ? Moves.NONE : result.bestMove();
+    boolean searched = best != Moves.NONE && Moves.from(best) == Board.square(move.start())
+        && Moves.to(best) == Board.square(move.end());
+    int promotion = searched ? Moves.promotion(best) : Board.QUEEN;
+    return switch (promotion) {
+      case Board.ROOK -> "♜";
+      case Board.BISHOP -> "♝";
+      case Board.KNIGHT -> "♞";
+      default -> "♛";
+    };
+  }
+
+  /**
+   * Makes a running {@link #decideMove(Game)} return its best move so far.
+   */
+  @Override
+  public void stop() {
+    search.stop();
+  }
+
+  @Override
+  public void prepare() {
+    search.prepare();
+  }
+
+  public void setTablebase(Tablebase tablebase) {
+    search.setTablebase(tablebase);
+  }
+
+  public void setListener(Search.Listener listener) {
+    search.setListener(listener);
+  }
+
+  public TranspositionTable getTable() {
+    return search.getTable();
+  }
+
+  /**
+   * Stops the helper threads of a multi-threaded search.
+   */
+  public void close() {
+    search.close();
+  }
+
+  public SearchLimits getLimits() {
+    return limits;
+  }
+
+  public void setLimits(SearchLimits limits) {
+    this.limits = limits;
+  }
+
+  public SearchResult getLastResult() {
+    return lastResult;
+  }
+}
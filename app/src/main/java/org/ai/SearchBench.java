@@ -0,0 +1,64 @@
+package org.ai;
+
+import java.util.ArrayList;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.perft.PerftPosition;
+
+/**
+ * Measures {@link SmpSearch} throughput for growing thread counts, searching
+ * every perft reference position for a fixed time with a fresh table.
+ */
+public class SearchBench {
+  private SearchBench() {
+  }
+
+  /**
+   * Command line entry point:
+   *
+   * <pre>
+   * --search-bench [millis per position] [--threads max] [--hash mb]
+   * </pre>
+   */
+  public static void run(String[] args) {
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    int hashMb = TranspositionTable.DEFAULT_MEGABYTES;
+    long millis = 1000;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--threads" -> maxThreads = Integer.parseInt(args[++i]);
+        case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+        default -> millis = Long.parseLong(args[i]);
+      }
+    }
+
+    ArrayList<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2)
+      counts.add(threads);
+    counts.add(maxThreads);
+
+    Board board = new Board();
+    long baseline = 0;
+    for (int threads : counts) {
+      long nodes = 0;
+      long nanos = 0;
+      int depth = 0;
+      try (SmpSearch search = new SmpSearch(threads, new TranspositionTable(hashMb))) {
+        for (PerftPosition position : PerftPosition.REFERENCE) {
+          Fen.load(board, position.fen());
+          search.getTable().clear();
+          SearchResult result = search.search(board, SearchLimits.moveTime(millis));
+          nodes += result.nodes();
+          nanos += result.nanos();
+          depth += result.depth();
+        }
+      }
+      long nps = nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+      if (baseline == 0)
+        baseline = nps;
+      System.out.printf("threads %3d  %,14d nps  x%5.2f  avg depth %.1f%n", threads, nps,
+          baseline == 0 ? 0.0 : (double) nps / baseline, (double) depth / PerftPosition.REFERENCE.size());
+    }
+  }
+}
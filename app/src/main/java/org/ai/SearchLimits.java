@@ -0,0 +1,24 @@
+package org.ai;
+
+/**
+ * Budget for one {@link Search}. Any limit set to 0 is ignored; the search
+ * stops at whichever of depth, time or nodes runs out first, or when
+ * {@link Search#stop()} is called.
+ */
+public record SearchLimits(int depth, long moveTimeMillis, long nodes) {
+  public static SearchLimits depth(int depth) {
+    return new SearchLimits(depth, 0, 0);
+  }
+
+  public static SearchLimits moveTime(long millis) {
+    return new SearchLimits(0, millis, 0);
+  }
+
+  public static SearchLimits nodes(long nodes) {
+    return new SearchLimits(0, 0, nodes);
+  }
+
+  public static SearchLimits infinite() {
+    return new SearchLimits(0, 0, 0);
+  }
+}
@@ -0,0 +1,23 @@
+package org.ai;
+
+import org.chess.board.Moves;
+
+/**
+ * Outcome of a {@link Search}: the best move of the last completed iteration
+ * ({@link Moves#NONE} if there is no legal move), its score in centipawns from
+ * the side to move's point of view, and the effort spent.
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long nanos) {
+  public long nodesPerSecond() {
+    return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+  }
+
+  public boolean isMate() {
+    return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+  }
+
+  @Override
+  public String toString() {
+    return Moves.toString(bestMove) + " score " + score + " depth " + depth + " nodes " + nodes;
+  }
+}
@@ -0,0 +1,179 @@
+package org.ai;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.chess.Game;
+import org.chess.players.Player;
+import org.chess.utils.Move;
+
+/**
+ * Plays agent against agent headless, one virtual thread per game, and
+ * reports throughput, results and game lengths. Games never touch Swing, so
+ * this runs without a display and is meant for soak-testing rule changes.
+ */
+public class SelfPlay {
+  public enum Result {
+    WHITE_WINS, BLACK_WINS, DRAW, MOVE_LIMIT
+  }
+
+  /**
+   * @param plies half-moves played before the result
+   */
+  public record GameRecord(Result result, int plies) {
+  }
+
+  private final String agent;
+  private final SearchLimits limits;
+  private final int hashMb;
+  private final int maxPlies;
+
+  private final LongAdder[] results = new LongAdder[Result.values().length];
+  private final LongAdder plies = new LongAdder();
+  private final LongAdder games = new LongAdder();
+
+  /**
+   * @param agent    {@code random} or {@code search}
+   * @param limits   per move limits of search agents
+   * @param hashMb   table size of each search agent
+   * @param maxPlies half-moves after which a game is abandoned
+   */
+  public SelfPlay(String agent, SearchLimits limits, int hashMb, int maxPlies) {
+    if (!agent.equals("random") && !agent.equals("search"))
+      throw new IllegalArgumentException("Unknown agent: " + agent);
+    this.agent = agent;
+    this.limits = limits;
+    this.hashMb = hashMb;
+    this.maxPlies = maxPlies;
+    for (int i = 0; i < results.length; i++)
+      results[i] = new LongAdder();
+  }
+
+  private Player createAgent(int id) {
+    return agent.equals("search") ? new SearchAI(id, limits, new TranspositionTable(hashMb)) : new RandomAI(id);
+  }
+
+  /**
+   * Plays one game from the starting position on the calling thread.
+   */
+  public GameRecord play() {
+    Game game = new Game(createAgent(1), createAgent(2));
+    int ply = 0;
+    while (true) {
+      Player active = game.getActivePlayer();
+      if (game.isCheckmate(active.id))
+        return record(active.id == 1 ? Result.BLACK_WINS : Result.WHITE_WINS, ply);
+      if (game.isStalemate(active.id))
+        return record(Result.DRAW, ply);
+      if (ply >= maxPlies)
+        return record(Result.MOVE_LIMIT, ply);
+      Move move = ((Agent) active).decideMove(game);
+      if (move == null)
+        throw new IllegalStateException("Agent found no move in a position with legal moves");
+      game.move(move);
+      ply++;
+    }
+  }
+
+  private GameRecord record(Result result, int ply) {
+    results[result.ordinal()].increment();
+    plies.add(ply);
+    games.increment();
+    return new GameRecord(result, ply);
+  }
+
+  /**
+   * Plays {@code count} games on virtual threads, at most {@code concurrency}
+   * at a time, and waits for all of them.
+   */
+  public void playAll(int count, int concurrency) throws InterruptedException {
+    Semaphore slots = new Semaphore(concurrency);
+    ArrayList<Future<GameRecord>> futures = new ArrayList<>(count);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < count; i++) {
+        slots.acquire();
+        futures.add(executor.submit(() -> {
+          try {
+            return play();
+          } finally {
+            slots.release();
+          }
+        }));
+      }
+    }
+    for (Future<GameRecord> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Self-play game failed", e.getCause());
+      }
+    }
+  }
+
+  public long games() {
+    return games.sum();
+  }
+
+  public long plies() {
+    return plies.sum();
+  }
+
+  public long count(Result result) {
+    return results[result.ordinal()].sum();
+  }
+
+  /**
+   * Command line entry point:
+   *
+   * <pre>
+   * --self-play [games] [--agent random|search] [--depth n] [--movetime ms]
+   *             [--hash mb] [--concurrency n] [--max-plies n]
+   * </pre>
+   */
+  public static void run(String[] args) {
+    int count = 1000;
+    String agent = "random";
+    int depth = 0;
+    long moveTime = 0;
+    int hashMb = 1;
+    int concurrency = 256;
+    int maxPlies = 500;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--agent" -> agent = args[++i];
+        case "--depth" -> depth = Integer.parseInt(args[++i]);
+        case "--movetime" -> moveTime = Long.parseLong(args[++i]);
+        case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+        case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+        case "--max-plies" -> maxPlies = Integer.parseInt(args[++i]);
+        default -> count = Integer.parseInt(args[i]);
+      }
+    }
+    SearchLimits limits = depth == 0 && moveTime == 0 ? SearchLimits.depth(2)
+        : new SearchLimits(depth, moveTime, 0);
+
+    SelfPlay selfPlay = new SelfPlay(agent, limits, hashMb, maxPlies);
+    long start = System.nanoTime();
+    try {
+      selfPlay.playAll(count, concurrency);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    long games = selfPlay.games();
+    System.out.printf("%,d games in %.2f s: %,.1f games/s, %,.0f moves/s%n", games, seconds, games / seconds,
+        selfPlay.plies() / seconds);
+    for (Result result : Result.values()) {
+      long n = selfPlay.count(result);
+      System.out.printf("  %-10s %,8d  %5.1f%%%n", result, n, games == 0 ? 0.0 : 100.0 * n / games);
+    }
+    System.out.printf("average length %.1f plies%n", games == 0 ? 0.0 : (double) selfPlay.plies() / games);
+  }
+}
@@ -0,0 +1,129 @@
+package org.ai;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.chess.board.Board;
+import org.chess.tablebase.Tablebase;
+
+/**
+ * Lazy SMP: the calling thread runs the main {@link Search} while helper
+ * threads search the same position at staggered depths. All of them share one
+ * {@link TranspositionTable}, so the helpers mostly serve to fill it with
+ * results the main search then cuts off on. When the main search finishes the
+ * helpers are stopped, and the deepest completed result is returned.
+ */
+public class SmpSearch implements AutoCloseable {
+  private final TranspositionTable table;
+  private final Search[] searches;
+  private final ExecutorService helpers;
+
+  public SmpSearch(int threads) {
+    this(threads, new TranspositionTable());
+  }
+
+  public SmpSearch(int threads, TranspositionTable table) {
+    if (threads < 1)
+      throw new IllegalArgumentException("Thread count must be at least 1");
+    this.table = table;
+    searches = new Search[threads];
+    for (int i = 0; i < threads; i++)
+      searches[i] = new Search(table);
+    helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+      Thread thread = new Thread(runnable, "search-helper");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public SearchResult search(Board position, SearchLimits limits) {
+    table.newSearch();
+    // taken here rather than on the helper threads, so a helper that has not
+    // started by the time the main search ends is still stopped
+    AtomicBoolean[] signals = new AtomicBoolean[searches.length];
+    for (int i = 0; i < searches.length; i++)
+      signals[i] = searches[i].takeSignal();
+
+    // helpers run until the main search stops them
+    SearchLimits helperLimits = new SearchLimits(0, limits.moveTimeMillis(), 0);
+    ArrayList<Future<SearchResult>> results = new ArrayList<>(searches.length - 1);
+    for (int i = 1; i < searches.length; i++) {
+      Search helper = searches[i];
+      int thread = i;
+      AtomicBoolean signal = signals[i];
+      results.add(helpers.submit(() -> helper.run(position, helperLimits, thread, signal)));
+    }
+
+    SearchResult main = searches[0].run(position, limits, 0, signals[0]);
+    for (int i = 1; i < searches.length; i++)
+      signals[i].set(true);
+
+    SearchResult best = main;
+    long nodes = main.nodes();
+    for (Future<SearchResult> future : results) {
+      SearchResult result = join(future);
+      nodes += result.nodes();
+      if (result.depth() > best.depth())
+        best = result;
+    }
+    return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, main.nanos());
+  }
+
+  private static SearchResult join(Future<SearchResult> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  public void setTablebase(Tablebase tablebase) {
+    for (Search search : searches)
+      search.setTablebase(tablebase);
+  }
+
+  /**
+   * Reports the iterations of the main search only; helper results are not
+   * reported as they come in.
+   */
+  public void setListener(Search.Listener listener) {
+    searches[0].setListener(listener);
+  }
+
+  /**
+   * See {@link Search#stop()}.
+   */
+  public void stop() {
+    for (Search search : searches)
+      search.stop();
+  }
+
+  /**
+   * See {@link Search#prepare()}.
+   */
+  public void prepare() {
+    for (Search search : searches)
+      search.prepare();
+  }
+
+  public int threads() {
+    return searches.length;
+  }
+
+  public TranspositionTable getTable() {
+    return table;
+  }
+
+  @Override
+  public void close() {
+    if (helpers != null)
+      helpers.shutdownNow();
+  }
+}
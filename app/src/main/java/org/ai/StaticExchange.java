@@ -0,0 +1,79 @@
+package org.ai;
+
+import org.chess.board.Attacks;
+import org.chess.board.Board;
+import org.chess.board.Moves;
+
+/**
+ * Static exchange evaluation: whether a capture still wins at least a given
+ * amount of material once both sides have recaptured on the target square
+ * with their least valuable attacker, each free to stop when going on would
+ * lose. Runs on {@link Attacks#attackersTo(Board, int, long)} without making
+ * any move, and ignores pins.
+ */
+public final class StaticExchange {
+  // indexed by board type code
+  private static final int[] VALUES = { 0, 100, 500, 320, 330, 900, 20_000 };
+
+  private StaticExchange() {
+  }
+
+  /**
+   * Whether {@code move} gains at least {@code threshold} centipawns after the
+   * exchange on its target square.
+   */
+  public static boolean isAtLeast(Board board, int move, int threshold) {
+    int from = Moves.from(move);
+    int to = Moves.to(move);
+    int captured = VALUES[Moves.captured(move)];
+    int moving = VALUES[Moves.piece(move)];
+    if (Moves.special(move) == Moves.CORONATION) {
+      int promotion = VALUES[Moves.promotion(move) == Board.EMPTY ? Board.QUEEN : Moves.promotion(move)];
+      captured += promotion - VALUES[Board.PAWN];
+      moving = promotion;
+    }
+
+    // swap is what the side to move is up (or down) against the threshold
+    int swap = captured - threshold;
+    if (swap < 0)
+      return false;
+    swap = moving - swap;
+    if (swap <= 0)
+      return true;
+
+    long occupied = board.occupied() & ~(1L << from);
+    if (Moves.special(move) == Moves.EN_PASSANT)
+      occupied &= ~(1L << Board.square(Board.row(from), Board.col(to)));
+    int side = Board.sideOf(board.get(from));
+    // 1 while the exchange so far favours the side that made the move
+    int result = 1;
+    while (true) {
+      side ^= 1;
+      long attackers = Attacks.attackersTo(board, to, occupied);
+      int attacker = Board.NO_SQUARE;
+      int attackerType = Board.EMPTY;
+      boolean opponentAttacks = false;
+      for (long bits = attackers; bits != 0; bits &= bits - 1) {
+        int sq = Long.numberOfTrailingZeros(bits);
+        int code = board.get(sq);
+        if (Board.sideOf(code) != side) {
+          opponentAttacks = true;
+        } else if (attacker == Board.NO_SQUARE || VALUES[Board.typeOf(code)] < VALUES[attackerType]) {
+          attacker = sq;
+          attackerType = Board.typeOf(code);
+        }
+      }
+      if (attacker == Board.NO_SQUARE)
+        break;
+      result ^= 1;
+      // the king may only recapture when nothing can take it back
+      if (attackerType == Board.KING)
+        return (opponentAttacks ? result ^ 1 : result) == 1;
+      swap = VALUES[attackerType] - swap;
+      if (swap < result)
+        break;
+      occupied &= ~(1L << attacker);
+    }
+    return result == 1;
+  }
+}
@@ -0,0 +1,195 @@
+package org.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of search results, shared by every thread searching
+ * with it and accessed without locks.
+ *
+ * Entries are two longs in a flat {@code long[]}: the position key XORed with
+ * the data, then the data. A reader recomputes the key from both halves, so
+ * an entry torn by two threads writing at once fails verification and reads
+ * as a miss. Entries are grouped in buckets of {@link #BUCKET_SIZE}; a store
+ * replaces the same position if present, otherwise the bucket's least useful
+ * entry, preferring entries from older searches and then shallower ones.
+ *
+ * <pre>
+ * data bits  0-23  best move ({@link org.chess.board.Moves} encoding)
+ *           24-39  score (signed)
+ *           40-47  depth
+ *           48-49  bound, never 0 for a stored entry
+ *           50-57  generation
+ * </pre>
+ */
+public class TranspositionTable {
+  public static final int EXACT = 1;
+  public static final int LOWER = 2;
+  public static final int UPPER = 3;
+
+  public static final int DEFAULT_MEGABYTES = 16;
+  private static final int BUCKET_SIZE = 4;
+  private static final int BYTES_PER_ENTRY = 16;
+  private static final int GENERATION_MASK = 0xFF;
+
+  private final long[] table;
+  private final int bucketMask;
+  private volatile int generation;
+
+  private final LongAdder probes = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder stores = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+
+  public TranspositionTable() {
+    this(DEFAULT_MEGABYTES);
+  }
+
+  public TranspositionTable(int megabytes) {
+    long buckets = Long.highestOneBit(
+        Math.max(1L, (long) megabytes * 1024 * 1024 / (BYTES_PER_ENTRY * BUCKET_SIZE)));
+    int size = (int) Math.min(buckets, 1 << 26);
+    table = new long[size * BUCKET_SIZE * 2];
+    bucketMask = size - 1;
+  }
+
+  /**
+   * Starts a new search. Entries stored by earlier searches stay readable but
+   * become the first to be replaced.
+   */
+  public void newSearch() {
+    generation = generation + 1 & GENERATION_MASK;
+  }
+
+  public void clear() {
+    Arrays.fill(table, 0);
+    generation = 0;
+    probes.reset();
+    hits.reset();
+    stores.reset();
+    collisions.reset();
+  }
+
+  /**
+   * Returns the data stored for {@code key}, or 0 on a miss. Decode it with
+   * the static accessors.
+   */
+  public long probe(long key) {
+    probes.increment();
+    int base = bucketOf(key);
+    for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+      long data = table[i + 1];
+      if ((table[i] ^ data) == key && data != 0) {
+        hits.increment();
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  public void store(long key, int move, int score, int depth, int bound) {
+    int base = bucketOf(key);
+    int current = generation;
+    int replace = base;
+    int worst = Integer.MAX_VALUE;
+    for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+      long data = table[i + 1];
+      if (data == 0 || (table[i] ^ data) == key) {
+        replace = i;
+        // keep the known best move when the new result has none
+        if (data != 0 && move == 0)
+          move = move(data);
+        worst = -1;
+        break;
+      }
+      int age = current - generation(data) & GENERATION_MASK;
+      int value = depth(data) - 8 * age;
+      if (value < worst) {
+        worst = value;
+        replace = i;
+      }
+    }
+    if (worst != -1)
+      collisions.increment();
+    stores.increment();
+
+    long data = move & 0xFFFFFFL
+        | (score & 0xFFFFL) << 24
+        | (long) (depth & 0xFF) << 40
+        | (long) bound << 48
+        | (long) current << 50;
+    table[replace + 1] = data;
+    table[replace] = key ^ data;
+  }
+
+  private int bucketOf(long key) {
+    return ((int) (key >>> 32) & bucketMask) * BUCKET_SIZE * 2;
+  }
+
+  public static int move(long data) {
+    return (int) (data & 0xFFFFFF);
+  }
+
+  public static int score(long data) {
+    return (short) (data >>> 24);
+  }
+
+  public static int depth(long data) {
+    return (int) (data >>> 40 & 0xFF);
+  }
+
+  public static int bound(long data) {
+    return (int) (data >>> 48 & 0x03);
+  }
+
+  private static int generation(long data) {
+    return (int) (data >>> 50 & GENERATION_MASK);
+  }
+
+  public int capacity() {
+    return table.length / 2;
+  }
+
+  public long getProbes() {
+    return probes.sum();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getStores() {
+    return stores.sum();
+  }
+
+  /**
+   * Stores that had to evict an entry of another position.
+   */
+  public long getCollisions() {
+    return collisions.sum();
+  }
+
+  /**
+   * Share of a sample of entries written by the current search, in permille,
+   * as reported by UCI {@code hashfull}.
+   */
+  public int hashfull() {
+    int sample = Math.min(1000, capacity());
+    int current = generation;
+    int used = 0;
+    for (int i = 0; i < sample; i++) {
+      long data = table[i * 2 + 1];
+      if (data != 0 && generation(data) == current)
+        used++;
+    }
+    return used * 1000 / sample;
+  }
+
+  @Override
+  public String toString() {
+    long probes = getProbes();
+    return String.format("tt %,d entries, %,d probes, %.1f%% hits, %,d stores, %,d collisions, %d%% full",
+        capacity(), probes, probes == 0 ? 0.0 : 100.0 * getHits() / probes, getStores(), getCollisions(),
+        hashfull() / 10);
+  }
+}
@@ -0,0 +1,419 @@
+package org.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.ai.AgentExecutor.Decision;
+import org.chess.Game;
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.chess.players.Player;
+import org.chess.players.PlayerType;
+import org.chess.tablebase.Tablebase;
+
+/**
+ * Universal Chess Interface front end, so the engine can be run by a GUI or a
+ * match runner with no display.
+ *
+ * The position is kept on a {@link Board} and the moves of {@code position}
+ * commands are checked against its legal moves; when a command only appends
+ * moves to the previous one, just the new moves are played. The GUI decides
+ * when a game is over, so moves after a repetition are played like any other.
+ * Each {@code go} hands a headless {@link Game} of the position to a
+ * {@link SearchAI} on an {@link AgentExecutor}, which leaves this thread free
+ * to read {@code stop} and {@code ponderhit} while the search runs. Every completed iteration is
+ * reported as an {@code info} line.
+ */
+public class UciEngine {
+  public static final String NAME = "MiniChess";
+  private static final int MAX_HASH_MB = 1024;
+  private static final int MAX_THREADS = 64;
+  // moves assumed left when the GUI does not send movestogo
+  private static final int DEFAULT_MOVES_TO_GO = 30;
+  // time kept back for the GUI and the pipe on every move
+  private static final long MOVE_OVERHEAD_MILLIS = 30;
+
+  private final BufferedReader in;
+  private final PrintStream out;
+
+  private final Player white = new Player(PlayerType.Human, 1);
+  private final Player black = new Player(PlayerType.Human, 2);
+  private final Board board = new Board();
+  private Fen.Counters counters = Fen.load(board, Fen.START_POSITION);
+  private String positionFen = Fen.START_POSITION;
+  private final ArrayList<String> positionMoves = new ArrayList<>();
+
+  private final AgentExecutor executor = new AgentExecutor();
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "uci-timer");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private int hashMb = TranspositionTable.DEFAULT_MEGABYTES;
+  private int threads = 1;
+  private Tablebase tablebase;
+  private SearchAI engine;
+
+  // search state, guarded by this
+  private CompletableFuture<Decision> search;
+  // the search followed by its bestmove line
+  private CompletableFuture<Decision> reported;
+  private boolean pondering;
+  private boolean infinite;
+  // whether bestmove is held back until stop or ponderhit
+  private boolean waitForStop;
+  private boolean finished;
+  private boolean failed;
+  private long ponderMoveTime;
+  private ScheduledFuture<?> scheduledStop;
+  private volatile int[] lastPv = new int[0];
+
+  public UciEngine(InputStream in, PrintStream out) {
+    this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    this.out = out;
+    engine = createEngine();
+  }
+
+  private SearchAI createEngine() {
+    SearchAI ai = new SearchAI(1, SearchLimits.infinite(), threads, new TranspositionTable(hashMb));
+    ai.setTablebase(tablebase);
+    ai.setListener(this::onIteration);
+    return ai;
+  }
+
+  /**
+   * Reads commands until {@code quit} or the end of the input.
+   */
+  public void loop() throws IOException {
+    try {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        String[] tokens = line.trim().split("\\s+");
+        try {
+          if (!handle(tokens))
+            break;
+        } catch (RuntimeException e) {
+          // a malformed command must not end the session
+          send("info string cannot handle " + line + ": " + e);
+        }
+      }
+    } finally {
+      finishSearch();
+      executor.close();
+      timer.shutdownNow();
+      engine.close();
+    }
+  }
+
+  // returns false on quit
+  private boolean handle(String[] tokens) {
+    switch (tokens[0]) {
+      case "uci" -> {
+        send("id name " + NAME);
+        send("id author MiniChess contributors");
+        send("option name Hash type spin default " + TranspositionTable.DEFAULT_MEGABYTES + " min 1 max "
+            + MAX_HASH_MB);
+        send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+        send("option name Ponder type check default false");
+        send("option name TablebasePath type string default <empty>");
+        send("uciok");
+      }
+      case "isready" -> send("readyok");
+      case "setoption" -> setOption(tokens);
+      case "ucinewgame" -> {
+        finishSearch();
+        engine.getTable().clear();
+        setPosition(Fen.START_POSITION, List.of());
+      }
+      case "position" -> position(tokens);
+      case "go" -> go(tokens);
+      case "stop" -> stop();
+      case "ponderhit" -> ponderHit();
+      case "quit" -> {
+        return false;
+      }
+      default -> {
+        // unknown commands are ignored, as the protocol asks
+      }
+    }
+    return true;
+  }
+
+  private void setOption(String[] tokens) {
+    int valueAt = Arrays.asList(tokens).indexOf("value");
+    if (tokens.length < 3 || !tokens[1].equals("name"))
+      return;
+    String name = String.join(" ", Arrays.asList(tokens).subList(2, valueAt < 0 ? tokens.length : valueAt));
+    String value = valueAt < 0 ? "" : String.join(" ", Arrays.asList(tokens).subList(valueAt + 1, tokens.length));
+    finishSearch();
+    try {
+      switch (name.toLowerCase()) {
+        case "hash" -> {
+          hashMb = Math.max(1, Math.min(MAX_HASH_MB, Integer.parseInt(value)));
+          replaceEngine();
+        }
+        case "threads" -> {
+          threads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value)));
+          replaceEngine();
+        }
+        case "tablebasepath" -> {
+          tablebase = value.isEmpty() || value.equals("<empty>") ? null : Tablebase.open(Path.of(value));
+          engine.setTablebase(tablebase);
+        }
+        default -> {
+          // Ponder needs nothing: the GUI decides when to send go ponder
+        }
+      }
+    } catch (NumberFormatException e) {
+      send("info string invalid value for " + name + ": " + value);
+    } catch (IOException e) {
+      send("info string cannot open tablebases: " + e.getMessage());
+    }
+  }
+
+  private void replaceEngine() {
+    engine.close();
+    engine = createEngine();
+  }
+
+  private void position(String[] tokens) {
+    finishSearch();
+    int movesAt = Arrays.asList(tokens).indexOf("moves");
+    int end = movesAt < 0 ? tokens.length : movesAt;
+    String fen;
+    if (tokens.length > 1 && tokens[1].equals("startpos"))
+      fen = Fen.START_POSITION;
+    else if (tokens.length > 2 && tokens[1].equals("fen"))
+      fen = String.join(" ", Arrays.asList(tokens).subList(2, end));
+    else
+      return;
+    setPosition(fen, movesAt < 0 ? List.of() : Arrays.asList(tokens).subList(movesAt + 1, tokens.length));
+  }
+
+  private void setPosition(String fen, List<String> moves) {
+    int from = 0;
+    if (fen.equals(positionFen) && moves.size() >= positionMoves.size()
+        && moves.subList(0, positionMoves.size()).equals(positionMoves)) {
+      // the usual case in a game: the previous position plus the last moves
+      from = positionMoves.size();
+    } else {
+      try {
+        counters = Fen.load(board, fen);
+      } catch (IllegalArgumentException e) {
+        send("info string " + e.getMessage());
+        return;
+      }
+      positionFen = fen;
+      positionMoves.clear();
+    }
+    MoveList legal = new MoveList();
+    for (String text : moves.subList(from, moves.size())) {
+      legal.clear();
+      MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+      int move = find(legal, text);
+      if (move == Moves.NONE) {
+        send("info string illegal move " + text);
+        return;
+      }
+      board.makeMove(move);
+      positionMoves.add(text);
+    }
+  }
+
+  // a detached game of the position for the engine; the move counters are
+  // those of the last FEN, which the search does not read
+  private Game searchPosition() {
+    Game position = new Game(white, black);
+    position.loadFen(Fen.toFen(board, counters));
+    return position;
+  }
+
+  private static int find(MoveList legal, String text) {
+    for (int i = 0; i < legal.size(); i++) {
+      if (Moves.toString(legal.get(i)).equals(text))
+        return legal.get(i);
+    }
+    return Moves.NONE;
+  }
+
+  private void go(String[] tokens) {
+    finishSearch();
+    int depth = 0;
+    long nodes = 0;
+    long moveTime = 0;
+    long[] time = new long[2];
+    long[] increment = new long[2];
+    int movesToGo = 0;
+    boolean ponder = false;
+    boolean forever = false;
+    for (int i = 1; i < tokens.length; i++) {
+      switch (tokens[i]) {
+        case "depth" -> depth = Integer.parseInt(tokens[++i]);
+        case "nodes" -> nodes = Long.parseLong(tokens[++i]);
+        case "movetime" -> moveTime = Long.parseLong(tokens[++i]);
+        case "wtime" -> time[Board.WHITE] = Long.parseLong(tokens[++i]);
+        case "btime" -> time[Board.BLACK] = Long.parseLong(tokens[++i]);
+        case "winc" -> increment[Board.WHITE] = Long.parseLong(tokens[++i]);
+        case "binc" -> increment[Board.BLACK] = Long.parseLong(tokens[++i]);
+        case "movestogo" -> movesToGo = Integer.parseInt(tokens[++i]);
+        case "ponder" -> ponder = true;
+        case "infinite" -> forever = true;
+        default -> {
+        }
+      }
+    }
+    int side = board.getSideToMove();
+    if (moveTime == 0 && time[side] > 0)
+      moveTime = allocate(time[side], increment[side], movesToGo);
+
+    SearchLimits limits = new SearchLimits(depth, ponder || forever ? 0 : moveTime, nodes);
+    engine.setLimits(limits);
+    lastPv = new int[0];
+    synchronized (this) {
+      pondering = ponder;
+      infinite = forever;
+      waitForStop = ponder || forever;
+      finished = false;
+      failed = false;
+      ponderMoveTime = moveTime;
+      // set before the callback is attached: a decision that is already done
+      // runs it right here, and it must find the search to report
+      search = executor.submit(engine, searchPosition());
+      reported = search.whenComplete((decision, error) -> onSearchDone(error));
+    }
+  }
+
+  /**
+   * Time for one move out of {@code remaining}: an even share of the moves
+   * left plus most of the increment, never closer to the flag than the move
+   * overhead.
+   */
+  static long allocate(long remaining, long increment, int movesToGo) {
+    long share = remaining / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+    return Math.max(1, Math.min(share, remaining - MOVE_OVERHEAD_MILLIS));
+  }
+
+  private void onIteration(SearchResult result, int[] pv) {
+    lastPv = pv;
+    StringBuilder sb = new StringBuilder(96);
+    sb.append("info depth ").append(result.depth()).append(" score ");
+    if (result.isMate()) {
+      int plies = Search.MATE - Math.abs(result.score());
+      sb.append("mate ").append(result.score() > 0 ? (plies + 1) / 2 : -(plies / 2));
+    } else {
+      sb.append("cp ").append(result.score());
+    }
+    sb.append(" nodes ").append(result.nodes()).append(" nps ").append(result.nodesPerSecond()).append(" time ")
+        .append(result.nanos() / 1_000_000).append(" hashfull ").append(engine.getTable().hashfull()).append(" pv");
+    for (int move : pv)
+      sb.append(' ').append(Moves.toString(move));
+    send(sb.toString());
+  }
+
+  private synchronized void onSearchDone(Throwable error) {
+    if (error != null) {
+      send("info string search failed: " + error);
+      failed = true;
+    }
+    finished = true;
+    if (!waitForStop)
+      sendBestMove();
+  }
+
+  private synchronized void stop() {
+    if (search == null)
+      return;
+    waitForStop = false;
+    if (finished) {
+      sendBestMove();
+      return;
+    }
+    engine.stop();
+  }
+
+  private synchronized void ponderHit() {
+    if (search == null || !pondering)
+      return;
+    pondering = false;
+    waitForStop = infinite;
+    if (finished) {
+      if (!waitForStop)
+        sendBestMove();
+    } else if (ponderMoveTime > 0) {
+      scheduledStop = timer.schedule(engine::stop, ponderMoveTime, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  // called once per search, when its result may be given out
+  private void sendBestMove() {
+    if (search == null)
+      return;
+    search = null;
+    if (scheduledStop != null) {
+      scheduledStop.cancel(false);
+      scheduledStop = null;
+    }
+    SearchResult result = engine.getLastResult();
+    int best = result == null || failed ? Moves.NONE : result.bestMove();
+    if (best == Moves.NONE) {
+      send("bestmove 0000");
+      return;
+    }
+    int[] pv = lastPv;
+    String ponder = pv.length > 1 && pv[0] == best ? " ponder " + Moves.toString(pv[1]) : "";
+    send("bestmove " + Moves.toString(best) + ponder);
+  }
+
+  /**
+   * Stops the running search, if any, and waits until its best move is out.
+   */
+  private void finishSearch() {
+    CompletableFuture<Decision> running;
+    synchronized (this) {
+      // joining this stage, not the decision, also waits for the bestmove line
+      running = search == null ? null : reported;
+    }
+    if (running == null)
+      return;
+    stop();
+    try {
+      running.join();
+    } catch (CancellationException | CompletionException e) {
+      // the best move has been sent either way
+    }
+  }
+
+  private void send(String line) {
+    out.println(line);
+    out.flush();
+  }
+
+  /**
+   * Command line entry point for {@code --uci}: speaks UCI on standard input
+   * and output.
+   */
+  public static void run(String[] args) {
+    try {
+      new UciEngine(System.in, System.out).loop();
+    } catch (IOException e) {
+      System.err.println("UCI input error: " + e.getMessage());
+    }
+  }
+}
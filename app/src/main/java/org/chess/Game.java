@@ -1,13 +1,32 @@
 package org.chess;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import org.ai.Agent;
+import org.ai.AgentExecutor;
+import org.ai.AgentExecutor.Decision;
 import org.ai.RandomAI;
+import org.ai.SearchAI;
+import org.chess.board.Attacks;
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.chess.board.Position;
+import org.chess.board.PositionCache;
+import org.chess.board.San;
+import org.chess.book.PolyglotBook;
+import org.chess.pgn.PgnGame;
+import org.chess.pgn.PgnWriter;
 import org.chess.pieces.Bishop;
 import org.chess.pieces.King;
 import org.chess.pieces.Knight;
@@ -17,10 +36,10 @@ import org.chess.pieces.Queen;
 import org.chess.pieces.Rook;
 import org.chess.players.Player;
 import org.chess.players.PlayerType;
+import org.chess.tablebase.Tablebase;
 import org.chess.utils.BoardSnapshot;
 import org.chess.utils.Coords;
 import org.chess.utils.Move;
-import org.chess.utils.MoveParser;
 import org.chess.utils.MoveSnapshot;
 import org.chess.utils.PieceSnapshot;
 import org.chess.utils.PieceType;
@@ -29,18 +48,47 @@ import org.ui.utils.BoardListener;
 import org.ui.utils.ControlListener;
 
 public class Game implements BoardListener, ControlListener {
-  private final int BOARD_SIZE = 8;
+  private static final int BOARD_SIZE = Board.SIZE;
+  private static final int[][] KING_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 },
+      { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
+  private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
+  private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+  private static final int[][] KNIGHT_JUMPS = { { 2, 1 }, { -2, 1 }, { 2, -1 }, { -2, -1 },
+      { 1, 2 }, { -1, 2 }, { 1, -2 }, { -1, -2 } };
+  // { rook column, king destination, columns that must be empty }
+  private static final int[][] CASTLE_OPTIONS = { { 0, 2, 1, 2, 3 }, { 7, 6, 5, 6 } };
+
   private Player p1, p2;
-  private int activePlayer;
-  private HashMap<Coords, Piece> pieces;
+  private final Board board = new Board();
+  // legal moves and verdicts, recomputed only when the board's key changes
+  private final PositionCache positionCache = new PositionCache(board);
+  // the last complete position, replaced rather than changed
+  private volatile Position position;
+  private final Piece[] pieceViews = new Piece[Board.CODE_COUNT];
   private Coords selectedCell;
   private Piece selectedPiece;
   private ArrayList<MoveSnapshot> moveHistory;
+  // the moves played, in SAN
+  private final ArrayList<String> sanHistory = new ArrayList<>();
+  private String startFen = Fen.START_POSITION;
   private boolean waitingForCoronation = false;
   private boolean gameIsOver = false;
-  private final ArrayList<Integer> boardStateHistory = new ArrayList<>();
-
-  private boolean aiThinking = false;
+  private final ArrayList<Long> boardStateHistory = new ArrayList<>();
+  // half-moves since the last capture or pawn move, and its value before each move
+  private int halfmoveClock;
+  private final ArrayList<Integer> halfmoveClocks = new ArrayList<>();
+  private int fullmoveNumber = 1;
+
+  // whether agents are asked for their moves on their own thread
+  private final boolean autoPlay;
+  private AgentExecutor agentExecutor;
+  // the decision whose move will be played, null when no agent is thinking
+  private CompletableFuture<Decision> pendingDecision;
+  private volatile Decision lastDecision;
+  private PolyglotBook openingBook;
+  // the promotion piece of the book move being played, null for any other move
+  private PieceType bookPromotion;
+  private final Random bookRandom = new Random();
 
   private Runnable onBoardUpdated;
   private Runnable onMove;
@@ -48,7 +96,7 @@ public class Game implements BoardListener, ControlListener {
   private Consumer<Consumer<String>> onCoronation;
 
   public Game() {
-    this(null, null, null);
+    this(null, null, (HashMap<Coords, Piece>) null);
   }
 
   public Game(HashMap<Coords, Piece> pieces) {
@@ -56,27 +104,118 @@ public class Game implements BoardListener, ControlListener {
   }
 
   public Game(PlayerType p1, PlayerType p2) {
-    this(p1, p2, null);
+    this(p1, p2, (HashMap<Coords, Piece>) null);
+  }
+
+  /**
+   * Starts a game from a FEN position, with its side to move, castling
+   * rights, en passant square and move counters.
+   */
+  public Game(PlayerType p1, PlayerType p2, String fen) {
+    this.p1 = createPlayer(p1);
+    this.p2 = createPlayer(p2);
+    autoPlay = true;
+    init();
+    loadFen(fen);
+    maybeTriggerAI();
+  }
+
+  /**
+   * Starts a game from the starting position with an opening book and endgame
+   * tables, either of which may be null, in place before the first agent is
+   * asked for a move.
+   */
+  public Game(PlayerType p1, PlayerType p2, PolyglotBook book, Tablebase tablebase) {
+    this.p1 = createPlayer(p1);
+    this.p2 = createPlayer(p2);
+    autoPlay = true;
+    openingBook = book;
+    setTablebase(tablebase);
+    init();
+    initWithPieces();
+    publishPosition();
+    maybeTriggerAI();
   }
 
   public Game(PlayerType p1, PlayerType p2, HashMap<Coords, Piece> pieces) {
-    this.p1 = p1 == null ? new Player() : p1 == PlayerType.Human ? new Player() : new RandomAI();
-    this.p2 = p2 == null ? new Player() : p2 == PlayerType.Human ? new Player() : new RandomAI();
+    this.p1 = createPlayer(p1);
+    this.p2 = createPlayer(p2);
+    autoPlay = true;
     init();
     if (pieces == null) {
       initWithPieces();
     } else {
-      this.pieces = new HashMap<>(pieces);
+      addPieces(pieces);
+      startFen = toFen();
     }
+    publishPosition();
     maybeTriggerAI();
   }
 
+  /**
+   * Creates a detached copy of another game's last published position, see
+   * {@link #getPosition()}. The copy shares the players but has no history,
+   * callbacks or AI thread attached, so it can be searched freely from
+   * another thread, and it may be taken from any thread.
+   */
+  public Game(Game other) {
+    this.p1 = other.p1;
+    this.p2 = other.p2;
+    autoPlay = false;
+    init();
+    other.position.copyTo(board);
+    startFen = toFen();
+    publishPosition();
+  }
+
+  /**
+   * Creates a headless game from the starting position. Agents are never
+   * triggered and nothing touches Swing: the caller plays every move with
+   * {@link #move(Move)}. The players must have ids 1 and 2.
+   */
+  public Game(Player p1, Player p2) {
+    if (p1.id != 1 || p2.id != 2)
+      throw new IllegalArgumentException("Players must have ids 1 and 2");
+    this.p1 = p1;
+    this.p2 = p2;
+    autoPlay = false;
+    init();
+    initWithPieces();
+    publishPosition();
+  }
+
+  private static Player createPlayer(PlayerType type) {
+    if (type == null)
+      return new Player();
+    return switch (type) {
+      case Human -> new Player();
+      case RandomAI -> new RandomAI();
+      case SearchAI -> new SearchAI();
+    };
+  }
+
   private void init() {
-    activePlayer = 1;
-    pieces = new HashMap<>();
+    board.clearAll();
     moveHistory = new ArrayList<>();
   }
 
+  /**
+   * Book consulted before asking an {@link Agent} for a move; null for none.
+   */
+  public void setOpeningBook(PolyglotBook book) {
+    openingBook = book;
+  }
+
+  /**
+   * Endgame tables handed to the {@link SearchAI} players; null for none.
+   */
+  public void setTablebase(Tablebase tablebase) {
+    for (Player player : new Player[] { p1, p2 }) {
+      if (player instanceof SearchAI)
+        ((SearchAI) player).setTablebase(tablebase);
+    }
+  }
+
   public void setOnBoardUpdated(Runnable callback) {
     onBoardUpdated = callback;
   }
@@ -98,28 +237,23 @@ public class Game implements BoardListener, ControlListener {
     if (waitingForCoronation)
       return;
     if (selectedPiece == null) {
-      Piece piece = pieces.get(coords);
-      if (piece != null && piece.getOwner().id == activePlayer) {
+      Piece piece = pieceAt(coords);
+      if (piece != null && piece.getOwner().id == activePlayer()) {
         selectedPiece = piece;
         selectedCell = coords;
       }
     } else {
-      ArrayList<Move> legalMoves = getLegalMovesOf(selectedCell);
-      Move chosenMove = null;
-      for (Move move : legalMoves) {
-        if (move.end().equals(coords)) {
-          chosenMove = move;
-          break;
-        }
-      }
+      int from = Board.square(selectedCell);
+      int legal = positionCache.find(Board.sideOf(board.get(from)), from, Board.square(coords));
+      Move chosenMove = legal == Moves.NONE ? null : toMove(legal);
 
       if (chosenMove != null) {
         move(chosenMove);
         selectedPiece = null;
         selectedCell = null;
       } else {
-        Piece piece = pieces.get(coords);
-        if (piece != null && piece.getOwner().id == activePlayer) {
+        Piece piece = pieceAt(coords);
+        if (piece != null && piece.getOwner().id == activePlayer()) {
           selectedPiece = piece;
           selectedCell = coords;
         } else {
@@ -150,24 +284,44 @@ public class Game implements BoardListener, ControlListener {
 
   @Override
   public void onReset() {
-    activePlayer = 1;
-    pieces.clear();
+    cancelDecision();
+    board.clearAll();
     selectedCell = null;
     selectedPiece = null;
     moveHistory.clear();
+    sanHistory.clear();
+    startFen = Fen.START_POSITION;
+    boardStateHistory.clear();
+    halfmoveClocks.clear();
+    halfmoveClock = 0;
+    fullmoveNumber = 1;
     waitingForCoronation = false;
     initWithPieces();
     gameIsOver = false;
+    publishPosition();
     if (onBoardUpdated != null) {
       onBoardUpdated.run();
     }
-    aiThinking = false;
     maybeTriggerAI();
   }
 
+  public void loadFen(String fen) {
+    Fen.Counters counters = Fen.load(board, fen);
+    halfmoveClock = counters.halfmoveClock();
+    fullmoveNumber = counters.fullmoveNumber();
+    halfmoveClocks.clear();
+    selectedCell = null;
+    selectedPiece = null;
+    moveHistory.clear();
+    sanHistory.clear();
+    boardStateHistory.clear();
+    waitingForCoronation = false;
+    gameIsOver = false;
+    startFen = toFen();
+    publishPosition();
+  }
+
   public void initWithPieces() {
-    if (pieces == null)
-      pieces = new HashMap<>();
     for (int i = 0; i < BOARD_SIZE; i++) {
       addPiece(new Coords(1, i), new Pawn(p1));
       addPiece(new Coords(6, i), new Pawn(p2));
@@ -190,10 +344,17 @@ public class Game implements BoardListener, ControlListener {
     addPiece(new Coords(7, 7), new Rook(p2));
   }
 
+  /**
+   * The pieces come from the published {@link Position}; the legal moves of
+   * the selected piece are only computed on the thread that plays the moves.
+   */
   public BoardSnapshot getBoardSnapshot() {
-    ArrayList<PieceSnapshot> pieceSnapshots = new ArrayList<>();
-    for (Map.Entry<Coords, Piece> e : pieces.entrySet()) {
-      pieceSnapshots.add(new PieceSnapshot(e.getKey(), e.getValue().getType(), e.getValue().getOwner().id));
+    Position position = this.position;
+    ArrayList<PieceSnapshot> pieceSnapshots = new ArrayList<>(position.pieceCount());
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = position.get(sq);
+      if (code != Board.EMPTY)
+        pieceSnapshots.add(new PieceSnapshot(Board.coords(sq), Board.pieceType(code), Board.sideOf(code) + 1));
     }
     ArrayList<Move> legalMoves = new ArrayList<>();
     if (selectedCell != null) {
@@ -202,23 +363,103 @@ public class Game implements BoardListener, ControlListener {
     return new BoardSnapshot(pieceSnapshots, selectedCell, legalMoves);
   }
 
+  /**
+   * The last move in SAN, followed by a draw mark when it drew the game by
+   * stalemate, insufficient material or repetition.
+   */
   public String getLastMove() {
-    int opponentId = getOpponent(activePlayer);
-    boolean isCheck = isKingInCheck(opponentId);
-    boolean isCheckmate = isCheckmate(opponentId);
-    boolean isStalemate = isStalemate(opponentId);
-    boolean isCapture = moveHistory.getLast().captured() != null;
-    PieceType coronationType = pieces.get(moveHistory.getLast().move().end()).getType();
-    return MoveParser.parseMove(moveHistory.getLast().move(), isCapture, isCheck, isCheckmate, isStalemate,
-        coronationType);
+    if (sanHistory.isEmpty())
+      return "";
+    String san = sanHistory.getLast();
+    // the verdict is recorded by passTurn, for the side that moves next
+    return gameIsOver && !isCheckmate(activePlayer()) ? san + " ½–½" : san;
+  }
+
+  public ArrayList<String> getSanHistory() {
+    return new ArrayList<>(sanHistory);
+  }
+
+  /**
+   * The result token of the game so far: {@code 1-0}, {@code 0-1},
+   * {@code 1/2-1/2} or {@code *} while it goes on.
+   */
+  public String getResult() {
+    int active = activePlayer();
+    if (isCheckmate(active))
+      return active == 1 ? "0-1" : "1-0";
+    if (isStalemate(active))
+      return "1/2-1/2";
+    return PgnGame.UNFINISHED;
+  }
+
+  @Override
+  public String toPgn() {
+    LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    tags.put("Event", "MiniChess game");
+    tags.put("Site", "MiniChess");
+    tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+    tags.put("Round", "-");
+    tags.put("White", String.valueOf(p1.getType()));
+    tags.put("Black", String.valueOf(p2.getType()));
+    if (!startFen.equals(Fen.START_POSITION)) {
+      tags.put("SetUp", "1");
+      tags.put("FEN", startFen);
+    }
+    return PgnWriter.write(new PgnGame(tags, new ArrayList<>(sanHistory), getResult()));
   }
 
+  /**
+   * Returns the occupied squares as a freshly built map. The map is a copy of
+   * the board; use {@link #addPiece(Coords, Piece)} and
+   * {@link #deletePiece(Coords)} to change the position.
+   */
   public HashMap<Coords, Piece> getPieces() {
+    HashMap<Coords, Piece> pieces = new HashMap<>();
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = board.get(sq);
+      if (code != Board.EMPTY)
+        pieces.put(Board.coords(sq), pieceOf(code));
+    }
     return pieces;
   }
 
+  public Board getBoard() {
+    return board;
+  }
+
+  /**
+   * The position after the last completed move, undo or edit. It never
+   * changes, so it can be read from any thread while the game goes on.
+   */
+  public Position getPosition() {
+    return position;
+  }
+
+  /**
+   * The current position in FEN, with the move counters.
+   */
+  public String toFen() {
+    return Fen.toFen(board, new Fen.Counters(halfmoveClock, fullmoveNumber));
+  }
+
+  public int getHalfmoveClock() {
+    return halfmoveClock;
+  }
+
+  public int getFullmoveNumber() {
+    return fullmoveNumber;
+  }
+
+  private void publishPosition() {
+    position = Position.of(board);
+  }
+
   public Player getActivePlayer() {
-    return activePlayer == 1 ? p1 : p2;
+    return activePlayer() == 1 ? p1 : p2;
+  }
+
+  private int activePlayer() {
+    return board.getSideToMove() + 1;
   }
 
   private int getOpponent(int playerId) {
@@ -228,11 +469,13 @@ public class Game implements BoardListener, ControlListener {
   public Map<Coords, Piece> getPlayerPieces(int playerId) {
     if (playerId != 1 && playerId != 2)
       return Map.of();
-    return pieces.entrySet().stream()
-        .filter(e -> e.getValue().getOwner().id == playerId)
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue));
+    HashMap<Coords, Piece> playerPieces = new HashMap<>();
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = board.get(sq);
+      if (code != Board.EMPTY && Board.sideOf(code) == playerId - 1)
+        playerPieces.put(Board.coords(sq), pieceOf(code));
+    }
+    return playerPieces;
   }
 
   public Coords getSelectedCell() {
@@ -247,7 +490,7 @@ public class Game implements BoardListener, ControlListener {
     }
 
     selectedCell = coords;
-    selectedPiece = pieces.get(coords);
+    selectedPiece = pieceAt(coords);
   }
 
   public Piece getSelectedPiece() {
@@ -255,16 +498,33 @@ public class Game implements BoardListener, ControlListener {
   }
 
   public void addPiece(Coords coords, Piece piece) {
-    if (coords != null && piece != null)
-      pieces.putIfAbsent(coords, piece);
+    if (Board.isOnBoard(coords) && piece != null && board.isEmpty(Board.square(coords))) {
+      board.set(Board.square(coords), codeOf(piece));
+      publishPosition();
+    }
   }
 
   public void addPiece(Map.Entry<Coords, Piece> entry) {
-    pieces.putIfAbsent(entry.getKey(), entry.getValue());
+    addPiece(entry.getKey(), entry.getValue());
   }
 
+  /**
+   * Places a set-up position. It has no history, so its kings and rooks are
+   * marked as moved and it has no castling rights, which only the start
+   * position or a FEN gives.
+   */
   public void addPieces(HashMap<Coords, Piece> pieces) {
-    pieces.entrySet().forEach(this::addPiece);
+    for (Map.Entry<Coords, Piece> entry : pieces.entrySet()) {
+      Coords coords = entry.getKey();
+      Piece piece = entry.getValue();
+      if (!Board.isOnBoard(coords) || piece == null || !board.isEmpty(Board.square(coords)))
+        continue;
+      int code = codeOf(piece);
+      if (Board.typeOf(code) == Board.KING || Board.typeOf(code) == Board.ROOK)
+        code |= Board.MOVED_FLAG;
+      board.set(Board.square(coords), code);
+    }
+    publishPosition();
   }
 
   public void deletePiece(Map.Entry<Coords, Piece> entry) {
@@ -274,7 +534,10 @@ public class Game implements BoardListener, ControlListener {
   }
 
   public void deletePiece(Coords coords) {
-    pieces.remove(coords);
+    if (Board.isOnBoard(coords)) {
+      board.clear(Board.square(coords));
+      publishPosition();
+    }
 
     if (coords != null && coords.equals(selectedCell)) {
       selectedCell = null;
@@ -282,65 +545,113 @@ public class Game implements BoardListener, ControlListener {
     }
   }
 
+  private Piece pieceAt(Coords coords) {
+    return Board.isOnBoard(coords) ? pieceOf(board.get(Board.square(coords))) : null;
+  }
+
+  /**
+   * Returns the shared {@link Piece} standing for a board code. The instances
+   * are cached per code, so they must be treated as read-only.
+   */
+  private Piece pieceOf(int code) {
+    if (code == Board.EMPTY)
+      return null;
+    Piece piece = pieceViews[code];
+    if (piece == null) {
+      Player owner = Board.sideOf(code) == Board.WHITE ? p1 : p2;
+      piece = switch (Board.pieceType(code)) {
+        case Pawn -> new Pawn(owner);
+        case Rook -> new Rook(owner);
+        case Knight -> new Knight(owner);
+        case Bishop -> new Bishop(owner);
+        case Queen -> new Queen(owner);
+        case King -> new King(owner);
+      };
+      piece.setMoved(Board.hasMoved(code));
+      pieceViews[code] = piece;
+    }
+    return piece;
+  }
+
+  private int codeOf(Piece piece) {
+    return Board.encode(piece.getType(), piece.getOwner().id - 1, piece.getMoved());
+  }
+
+  private Piece promotedPiece(String chosenPieceType, Player owner) {
+    return promotedPiece(switch (chosenPieceType) {
+      case "♜" -> PieceType.Rook;
+      case "♝" -> PieceType.Bishop;
+      case "♞" -> PieceType.Knight;
+      default -> PieceType.Queen;
+    }, owner);
+  }
+
+  private Piece promotedPiece(PieceType type, Player owner) {
+    Piece promoted = switch (type) {
+      case Rook -> new Rook(owner);
+      case Bishop -> new Bishop(owner);
+      case Knight -> new Knight(owner);
+      default -> new Queen(owner);
+    };
+    promoted.setMoved(true);
+    return promoted;
+  }
+
   public void move(Move move) {
     if (gameIsOver)
       return;
     selectedCell = null;
     selectedPiece = null;
 
-    Piece captured = pieces.remove(move.end());
+    int from = Board.square(move.start());
+    int to = Board.square(move.end());
+    Piece captured = pieceOf(board.get(to));
     final Piece capturedPiece = captured;
-    Piece moved = pieces.remove(move.start());
-    moved.setMoved(true);
-    addPiece(move.end(), moved);
+    int moved = board.get(from);
+    int epSquare = board.getEpSquare();
+    // SAN is written against the position before the move
+    Board before = new Board(board);
+    before.setSideToMove(Board.sideOf(moved));
+    halfmoveClocks.add(halfmoveClock);
+    halfmoveClock = Board.typeOf(moved) == Board.PAWN || board.get(to) != Board.EMPTY ? 0 : halfmoveClock + 1;
+    if (Board.sideOf(moved) == Board.BLACK)
+      fullmoveNumber++;
+    board.clear(from);
+    board.set(to, moved | Board.MOVED_FLAG);
+    board.setEpSquare(move.sEvent() == SpecialEvent.DoublePawnMove ? (from + to) / 2 : Board.NO_SQUARE);
 
     if (move.sEvent() == SpecialEvent.Coronation) {
       waitingForCoronation = true;
-      pieces.remove(move.end());
+      board.clear(to);
 
       Player owner = move.piece().getOwner();
 
       if (owner instanceof Agent) {
         Agent ai = (Agent) owner;
-        String chosenPieceType = ai.choosePromotion(this, move);
-        Piece promoted = switch (chosenPieceType) {
-          case "♛" -> new Queen(owner);
-          case "♜" -> new Rook(owner);
-          case "♝" -> new Bishop(owner);
-          case "♞" -> new Knight(owner);
-          default -> new Queen(owner);
-        };
-        addPiece(move.end(), promoted);
-        moveHistory.add(new MoveSnapshot(move, capturedPiece));
-
-        if (onMove != null)
-          onMove.run();
+        // a book entry names its promotion piece: the agent did not choose the move
+        Piece promoted = bookPromotion != null ? promotedPiece(bookPromotion, owner)
+            : promotedPiece(ai.choosePromotion(this, move), owner);
+        board.set(to, codeOf(promoted));
+        moveHistory.add(new MoveSnapshot(move, capturedPiece, epSquare));
+        sanHistory.add(San.toSan(before, Moves.of(before, move, promoted.getType())));
+
         if (onBoardUpdated != null)
           onBoardUpdated.run();
 
         waitingForCoronation = false;
-        aiThinking = false;
         passTurn();
         return;
       }
 
       if (onCoronation != null) {
         onCoronation.accept(chosenPieceType -> {
-          Piece promoted = switch (chosenPieceType) {
-            case "♛" -> new Queen(owner);
-            case "♜" -> new Rook(owner);
-            case "♝" -> new Bishop(owner);
-            case "♞" -> new Knight(owner);
-            default -> new Queen(owner);
-          };
-          addPiece(move.end(), promoted);
-          moveHistory.add(new MoveSnapshot(move, capturedPiece));
-          if (onMove != null)
-            onMove.run();
+          Piece promoted = promotedPiece(chosenPieceType, owner);
+          board.set(to, codeOf(promoted));
+          moveHistory.add(new MoveSnapshot(move, capturedPiece, epSquare));
+          sanHistory.add(San.toSan(before, Moves.of(before, move, promoted.getType())));
           if (onBoardUpdated != null)
             onBoardUpdated.run();
           waitingForCoronation = false;
-          aiThinking = false;
           passTurn();
         });
       }
@@ -350,374 +661,396 @@ public class Game implements BoardListener, ControlListener {
     if (move.sEvent() == SpecialEvent.Castle) {
       int row = move.start().row();
       if (move.end().col() == 6) {
-        Piece rook = pieces.remove(new Coords(row, 7));
-        rook.setMoved(true);
-        addPiece(new Coords(row, 5), rook);
+        int rook = board.get(Board.square(row, 7));
+        board.clear(Board.square(row, 7));
+        board.set(Board.square(row, 5), rook | Board.MOVED_FLAG);
       } else if (move.end().col() == 2) {
-        Piece rook = pieces.remove(new Coords(row, 0));
-        rook.setMoved(true);
-        addPiece(new Coords(row, 3), rook);
+        int rook = board.get(Board.square(row, 0));
+        board.clear(Board.square(row, 0));
+        board.set(Board.square(row, 3), rook | Board.MOVED_FLAG);
       }
     }
 
     if (move.sEvent() == SpecialEvent.EnPassant) {
-      int row = move.start().row();
-      captured = pieces.remove(new Coords(row, move.end().col()));
+      int capturedSquare = Board.square(move.start().row(), move.end().col());
+      captured = pieceOf(board.get(capturedSquare));
+      board.clear(capturedSquare);
     }
 
-    moveHistory.add(new MoveSnapshot(move, captured));
-    if (onMove != null) {
-      onMove.run();
-    }
-    aiThinking = false;
+    moveHistory.add(new MoveSnapshot(move, captured, epSquare));
+    sanHistory.add(San.toSan(before, Moves.of(before, move, null)));
     passTurn();
   }
 
   public void undo() {
+    cancelDecision();
     if (moveHistory.isEmpty())
       return;
     selectedCell = null;
     selectedPiece = null;
 
     MoveSnapshot lastMove = moveHistory.removeLast();
+    sanHistory.removeLast();
+    if (!boardStateHistory.isEmpty())
+      boardStateHistory.removeLast();
+    if (!halfmoveClocks.isEmpty())
+      halfmoveClock = halfmoveClocks.removeLast();
+    if (lastMove.move().piece().getOwner().id == 2)
+      fullmoveNumber--;
+    gameIsOver = false;
     Move move = lastMove.move();
-    pieces.remove(move.end());
-    Piece piece = move.piece();
-    if (move.sEvent() == SpecialEvent.DoublePawnMove || move.sEvent() == SpecialEvent.Castle)
-      piece.setMoved(false);
-    addPiece(move.start(), piece);
-
-    if (move.sEvent() == SpecialEvent.Coronation) {
-      Piece originalPawn = new Pawn(piece.getOwner());
-      addPiece(move.start(), originalPawn);
-    } else {
-      addPiece(move.start(), piece);
-    }
+    board.clear(Board.square(move.end()));
+    // the piece recorded in the move carries the moved flag it had before moving,
+    // and is still the pawn for a coronation
+    board.set(Board.square(move.start()), codeOf(move.piece()));
 
     if (lastMove.captured() != null) {
       int row = move.sEvent() == SpecialEvent.EnPassant ? move.start().row() : move.end().row();
       int col = move.end().col();
-      addPiece(new Coords(row, col), lastMove.captured());
+      board.set(Board.square(row, col), codeOf(lastMove.captured()));
     }
 
     if (move.sEvent() == SpecialEvent.Castle) {
       int row = move.start().row();
       if (move.end().col() == 6) {
-        Piece rook = pieces.remove(new Coords(row, 5));
-        rook.setMoved(false);
-        // also for the king
-        addPiece(new Coords(row, 7), rook);
+        int rook = board.get(Board.square(row, 5));
+        board.clear(Board.square(row, 5));
+        board.set(Board.square(row, 7), rook & ~Board.MOVED_FLAG);
       } else if (move.end().col() == 2) {
-        Piece rook = pieces.remove(new Coords(row, 3));
-        rook.setMoved(false);
-        // also for the king
-        addPiece(new Coords(row, 0), rook);
+        int rook = board.get(Board.square(row, 3));
+        board.clear(Board.square(row, 3));
+        board.set(Board.square(row, 0), rook & ~Board.MOVED_FLAG);
       }
     }
 
-    activePlayer = move.piece().getOwner().id;
+    board.setSideToMove(move.piece().getOwner().id - 1);
+    // kept with the move, as a position loaded from FEN has no move behind its square
+    board.setEpSquare(lastMove.epSquare());
 
+    publishPosition();
     if (onUndo != null) {
       onUndo.run();
     }
   }
 
+  /**
+   * Plays a move on the board only: no history, callbacks, coronation prompt or
+   * {@link #passTurn()}. Meant for search and perft, and must be paired with
+   * {@link #unmakeMove()}. A null promotion on a coronation promotes to a queen.
+   */
+  public void makeMove(Move move, PieceType promotion) {
+    board.makeMove(Moves.of(board, move, promotion));
+  }
+
+  /**
+   * Allocation-free variant of {@link #makeMove(Move, PieceType)} for a move
+   * encoded with {@link Moves}.
+   */
+  public void makeMove(int move) {
+    board.makeMove(move);
+  }
+
+  public void unmakeMove() {
+    board.unmakeMove();
+  }
+
+  /**
+   * Hands the move to the other side once a move is on the board, records the
+   * verdict and only then fires the move callback, so it sees whether the move
+   * ended the game.
+   */
   public void passTurn() {
-    boardStateHistory.add(computeBoardHash());
-    if (isCheckmate(activePlayer) || isStalemate(activePlayer))
+    board.setSideToMove(board.getSideToMove() ^ 1);
+    publishPosition();
+    boardStateHistory.add(board.getKey());
+    if (isCheckmate(activePlayer()) || isStalemate(activePlayer()))
       gameIsOver = true;
-    activePlayer = getOpponent(activePlayer);
+    if (onMove != null)
+      onMove.run();
     maybeTriggerAI();
   }
 
   public ArrayList<Move> getValidMovesOf(Coords pieceCoords) {
     ArrayList<Move> validMoves = new ArrayList<>();
-    if (pieceCoords == null)
+    if (!Board.isOnBoard(pieceCoords))
       return validMoves;
-    Map<Coords, Piece> allyPieces = getPlayerPieces(pieces.get(pieceCoords).getOwner().id);
-    Piece piece = allyPieces.remove(pieceCoords);
-    Map<Coords, Piece> enemyPieces = getPlayerPieces(getOpponent(piece.getOwner().id));
-
-    switch (piece.getType()) {
-      case King:
-        int[][] kingDirs = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 }, { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
-        for (int[] dir : kingDirs) {
-          int newRow = pieceCoords.row() + dir[0];
-          int newCol = pieceCoords.col() + dir[1];
-          if (newRow < 0 || newRow >= BOARD_SIZE || newCol < 0 || newCol >= BOARD_SIZE)
-            continue;
-          Coords next = new Coords(newRow, newCol);
-          if (!allyPieces.containsKey(next))
-            validMoves.add(new Move(piece, pieceCoords, next, null));
-        }
-        if (!piece.getMoved()) {
-          int[][] castleOptions = {
-              { 0, 2, 1, 2, 3 },
-              { 7, 6, 5, 6 }
-          };
-          for (int[] option : castleOptions) {
-            Piece rook = pieces.get(new Coords(pieceCoords.row(), option[0]));
-            if (rook != null && !rook.getMoved()) {
+    addValidMoves(Board.square(pieceCoords), validMoves);
+    return validMoves;
+  }
+
+  private void addValidMoves(int from, ArrayList<Move> validMoves) {
+    int code = board.get(from);
+    if (code == Board.EMPTY)
+      return;
+    Piece piece = pieceOf(code);
+    Coords pieceCoords = Board.coords(from);
+    int side = Board.sideOf(code);
+    int row = Board.row(from);
+    int col = Board.col(from);
+
+    switch (Board.typeOf(code)) {
+      case Board.KING:
+        addStepMoves(KING_DIRECTIONS, from, validMoves);
+        if (!Board.hasMoved(code)) {
+          for (int[] option : CASTLE_OPTIONS) {
+            int rook = board.get(Board.square(row, option[0]));
+            if (Board.typeOf(rook) == Board.ROOK && Board.sideOf(rook) == side && !Board.hasMoved(rook)) {
               boolean cleared = true;
               for (int i = 2; i < option.length; i++) {
-                if (pieces.containsKey(new Coords(pieceCoords.row(), option[i]))) {
+                if (!board.isEmpty(Board.square(row, option[i]))) {
                   cleared = false;
                   break;
                 }
               }
               if (cleared)
-                validMoves
-                    .add(new Move(piece, pieceCoords, new Coords(pieceCoords.row(), option[1]), SpecialEvent.Castle));
+                validMoves.add(new Move(piece, pieceCoords, Board.coords(Board.square(row, option[1])),
+                    SpecialEvent.Castle));
             }
           }
         }
         break;
-      case Queen:
-        int[][] queenDirections = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 },
-            { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
-        validMoves = getDirectionalMoves(queenDirections, pieceCoords, allyPieces, enemyPieces);
+      case Board.QUEEN:
+        addDirectionalMoves(KING_DIRECTIONS, from, validMoves);
         break;
-      case Pawn:
-        int dir = piece.getOwner().id == 1 ? 1 : -1;
-        int plusRow = pieceCoords.row() + dir;
-        SpecialEvent sEvent = (dir == 1 && plusRow == 7) || (dir == -1 && plusRow == 0) ? SpecialEvent.Coronation
-            : null;
-        Coords oneUp = new Coords(plusRow, pieceCoords.col());
-        if (!pieces.containsKey(oneUp)) {
-          validMoves.add(new Move(piece, pieceCoords, oneUp, sEvent));
-          Coords twoUp = new Coords(plusRow + dir, pieceCoords.col());
-          if (!piece.getMoved() && !pieces.containsKey(twoUp)) {
-            validMoves.add(new Move(piece, pieceCoords, twoUp, SpecialEvent.DoublePawnMove));
+      case Board.PAWN:
+        int dir = side == Board.WHITE ? 1 : -1;
+        int plusRow = row + dir;
+        if (plusRow < 0 || plusRow >= BOARD_SIZE)
+          break;
+        SpecialEvent sEvent = plusRow == 7 || plusRow == 0 ? SpecialEvent.Coronation : null;
+        int oneUp = Board.square(plusRow, col);
+        if (board.isEmpty(oneUp)) {
+          validMoves.add(new Move(piece, pieceCoords, Board.coords(oneUp), sEvent));
+          int twoUpRow = plusRow + dir;
+          if (!Board.hasMoved(code) && twoUpRow >= 0 && twoUpRow < BOARD_SIZE
+              && board.isEmpty(Board.square(twoUpRow, col))) {
+            validMoves.add(new Move(piece, pieceCoords, Board.coords(Board.square(twoUpRow, col)),
+                SpecialEvent.DoublePawnMove));
           }
         }
-        int leftCol = pieceCoords.col() - 1;
-        int rightCol = pieceCoords.col() + 1;
-        Coords takeLeft = new Coords(plusRow, leftCol);
-        Coords takeRight = new Coords(plusRow, rightCol);
-        if (enemyPieces.containsKey(takeLeft))
-          validMoves.add(new Move(piece, pieceCoords, takeLeft, sEvent));
-        if (enemyPieces.containsKey(takeRight))
-          validMoves.add(new Move(piece, pieceCoords, takeRight, sEvent));
-        if (!moveHistory.isEmpty() && moveHistory.getLast().move().sEvent() != null
-            && moveHistory.getLast().move().sEvent().equals(SpecialEvent.DoublePawnMove)
-            && moveHistory.getLast().move().end().row() == pieceCoords.row()) {
-          if (moveHistory.getLast().move().end().col() == leftCol)
-            validMoves.add(new Move(piece, pieceCoords, takeLeft, SpecialEvent.EnPassant));
-          if (moveHistory.getLast().move().end().col() == rightCol)
-            validMoves.add(new Move(piece, pieceCoords, takeRight, SpecialEvent.EnPassant));
+        for (int takeCol = col - 1; takeCol <= col + 1; takeCol += 2) {
+          if (takeCol < 0 || takeCol >= BOARD_SIZE)
+            continue;
+          int target = Board.square(plusRow, takeCol);
+          int targetCode = board.get(target);
+          if (targetCode != Board.EMPTY && Board.sideOf(targetCode) != side)
+            validMoves.add(new Move(piece, pieceCoords, Board.coords(target), sEvent));
+          else if (target == board.getEpSquare() && plusRow == (side == Board.WHITE ? 5 : 2))
+            validMoves.add(new Move(piece, pieceCoords, Board.coords(target), SpecialEvent.EnPassant));
         }
         break;
-      case Rook:
-        int[][] rookDirections = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
-        validMoves = getDirectionalMoves(rookDirections, pieceCoords, allyPieces, enemyPieces);
+      case Board.ROOK:
+        addDirectionalMoves(ROOK_DIRECTIONS, from, validMoves);
         break;
-      case Knight:
-        int[][] jumps = { { 2, 1 }, { -2, 1 }, { 2, -1 }, { -2, -1 }, { 1, 2 }, { -1, 2 }, { 1, -2 }, { -1, -2 } };
-        for (int[] jump : jumps) {
-          int newRow = pieceCoords.row() + jump[0];
-          int newCol = pieceCoords.col() + jump[1];
-          if (newRow < 0 || newRow >= BOARD_SIZE || newCol < 0 || newCol >= BOARD_SIZE)
-            continue;
-          Coords newCoords = new Coords(newRow, newCol);
-          if (allyPieces.containsKey(newCoords))
-            continue;
-          validMoves.add(new Move(piece, pieceCoords, newCoords, null));
-        }
+      case Board.KNIGHT:
+        addStepMoves(KNIGHT_JUMPS, from, validMoves);
         break;
-      case Bishop:
-        int[][] bishopDirections = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
-        validMoves = getDirectionalMoves(bishopDirections, pieceCoords, allyPieces, enemyPieces);
+      case Board.BISHOP:
+        addDirectionalMoves(BISHOP_DIRECTIONS, from, validMoves);
         break;
     }
-    return validMoves;
   }
 
-  public ArrayList<Move> getDirectionalMoves(
-      int[][] directions,
-      Coords pieceCoords,
-      Map<Coords, Piece> allyPieces,
-      Map<Coords, Piece> enemyPieces) {
-    ArrayList<Move> validMoves = new ArrayList<>();
+  private void addStepMoves(int[][] steps, int from, ArrayList<Move> validMoves) {
+    int code = board.get(from);
+    Piece piece = pieceOf(code);
+    for (int[] step : steps) {
+      int newRow = Board.row(from) + step[0];
+      int newCol = Board.col(from) + step[1];
+      if (!Board.isOnBoard(newRow, newCol))
+        continue;
+      int target = board.get(Board.square(newRow, newCol));
+      if (target == Board.EMPTY || Board.sideOf(target) != Board.sideOf(code))
+        validMoves.add(new Move(piece, Board.coords(from), Board.coords(Board.square(newRow, newCol)), null));
+    }
+  }
+
+  private void addDirectionalMoves(int[][] directions, int from, ArrayList<Move> validMoves) {
+    int code = board.get(from);
+    Piece piece = pieceOf(code);
     for (int[] dir : directions) {
-      int row = pieceCoords.row() + dir[0];
-      int col = pieceCoords.col() + dir[1];
-      while (row >= 0 && row < BOARD_SIZE && col >= 0 && col < BOARD_SIZE) {
-        Coords next = new Coords(row, col);
-        if (allyPieces.containsKey(next))
+      int row = Board.row(from) + dir[0];
+      int col = Board.col(from) + dir[1];
+      while (Board.isOnBoard(row, col)) {
+        int target = board.get(Board.square(row, col));
+        if (target != Board.EMPTY && Board.sideOf(target) == Board.sideOf(code))
           break;
-        validMoves.add(new Move(pieces.get(pieceCoords), pieceCoords, next, null));
-        if (enemyPieces.containsKey(next))
+        validMoves.add(new Move(piece, Board.coords(from), Board.coords(Board.square(row, col)), null));
+        if (target != Board.EMPTY)
           break;
         row += dir[0];
         col += dir[1];
       }
     }
-    return validMoves;
   }
 
   public boolean isKingInCheck(int playerId) {
-    Coords kingCoords = null;
-
-    for (Map.Entry<Coords, Piece> entry : pieces.entrySet()) {
-      Piece piece = entry.getValue();
-      if (piece.getOwner().id == playerId && piece.getType() == PieceType.King) {
-        kingCoords = entry.getKey();
-        break;
-      }
-    }
-    if (kingCoords == null)
+    if (board.kingSquare(playerId - 1) == Board.NO_SQUARE)
       throw new IllegalStateException("King not found for player " + playerId);
-    int enemyId = getOpponent(playerId);
-    Map<Coords, Piece> enemyPieces = getPlayerPieces(enemyId);
-    for (Map.Entry<Coords, Piece> entry : enemyPieces.entrySet()) {
-      Coords pieceCoords = entry.getKey();
-      ArrayList<Move> enemyMoves = getValidMovesOf(pieceCoords);
-
-      for (Move move : enemyMoves) {
-        if (move.end().equals(kingCoords)) {
-          return true;
-        }
-      }
-    }
-    return false;
+    return positionCache.isInCheck(playerId - 1);
   }
 
   public boolean isCheckmate(int playerId) {
-    return getAllLegalMoves(playerId).isEmpty() && isKingInCheck(playerId);
+    return positionCache.verdict(playerId - 1) == PositionCache.Verdict.CHECKMATE;
   }
 
+  /**
+   * Whether the game is drawn with {@code playerId} to move: stalemate,
+   * insufficient material or threefold repetition.
+   */
   public boolean isStalemate(int playerId) {
-    if (getAllLegalMoves(playerId).isEmpty() && !isKingInCheck(playerId))
-      return true;
-    ArrayList<Piece> piecesOnBoard = new ArrayList<>(pieces.values());
-    if (piecesOnBoard.size() == 2)
-      return true;
-    if (piecesOnBoard.size() == 3) {
-      boolean hasOnlyKingAndMinor = piecesOnBoard.stream()
-          .allMatch(
-              p -> p.getType() == PieceType.King || p.getType() == PieceType.Bishop || p.getType() == PieceType.Knight);
-      if (hasOnlyKingAndMinor)
-        return true;
-    }
-    if (isThreefoldRepetition())
-      return true;
-    return false;
+    PositionCache.Verdict verdict = positionCache.verdict(playerId - 1);
+    return verdict == PositionCache.Verdict.STALEMATE || verdict == PositionCache.Verdict.INSUFFICIENT_MATERIAL
+        || isThreefoldRepetition();
+  }
+
+  /**
+   * Whether the side to move may play {@code move}. Only its squares are
+   * checked; a coronation's piece is chosen when it is played.
+   */
+  public boolean isLegal(Move move) {
+    if (!Board.isOnBoard(move.start()) || !Board.isOnBoard(move.end()))
+      return false;
+    return positionCache.find(board.getSideToMove(), Board.square(move.start()),
+        Board.square(move.end())) != Moves.NONE;
   }
 
   public ArrayList<Move> getAllLegalMoves(int playerId) {
-    ArrayList<Move> allLegalMoves = new ArrayList<>();
+    return legalMovesFrom(Board.NO_SQUARE, playerId - 1);
+  }
 
-    Map<Coords, Piece> playerPieces = getPlayerPieces(playerId);
+  public ArrayList<Move> getLegalMovesOf(Coords pieceCoords) {
+    if (!Board.isOnBoard(pieceCoords) || board.isEmpty(Board.square(pieceCoords)))
+      return new ArrayList<>();
+    int from = Board.square(pieceCoords);
+    return legalMovesFrom(from, Board.sideOf(board.get(from)));
+  }
 
-    for (Coords coords : playerPieces.keySet()) {
-      ArrayList<Move> legalMoves = getLegalMovesOf(coords);
-      allLegalMoves.addAll(legalMoves);
+  /**
+   * Legal moves of {@code side}, limited to the piece on {@code from} unless it
+   * is {@link Board#NO_SQUARE}. Coronations appear once; the promotion piece is
+   * chosen when the move is played.
+   */
+  private ArrayList<Move> legalMovesFrom(int from, int side) {
+    MoveList moves = positionCache.legalMoves(side);
+    ArrayList<Move> legalMoves = new ArrayList<>(moves.size());
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (from != Board.NO_SQUARE && Moves.from(move) != from)
+        continue;
+      if (Moves.special(move) == Moves.CORONATION && Moves.promotion(move) != Board.QUEEN)
+        continue;
+      legalMoves.add(toMove(move));
     }
+    return legalMoves;
+  }
 
-    return allLegalMoves;
+  /**
+   * Fills {@code moves} with the legal moves of the side to move, one entry
+   * per promotion piece. Meant for search and perft, which reuse the list.
+   */
+  public void generateLegalMoves(MoveList moves) {
+    MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
   }
 
-  public ArrayList<Move> getLegalMovesOf(Coords pieceCoords) {
-    ArrayList<Move> validMoves = getValidMovesOf(pieceCoords);
-    ArrayList<Move> legalMoves = new ArrayList<>();
-    for (Move move : validMoves) {
-      Piece captured = pieces.remove(move.end());
-      Piece moved = pieces.remove(move.start());
-      pieces.put(move.end(), moved);
-
-      boolean kingInCheck = isKingInCheck(moved.getOwner().id);
-
-      pieces.remove(move.end());
-      pieces.put(move.start(), moved);
-      if (captured != null)
-        pieces.put(move.end(), captured);
-
-      if (!kingInCheck) {
-        if (move.sEvent() == SpecialEvent.Castle) {
-          Coords start = move.start();
-          Coords end = move.end();
-          int row = start.row();
-          int step = (end.col() > start.col()) ? 1 : -1;
-          boolean pathSafe = true;
-          for (int col = start.col(); col != end.col() + step; col += step) {
-            if (isSquareAttacked(new Coords(row, col), getOpponent(moved.getOwner().id))) {
-              pathSafe = false;
-              break;
-            }
-          }
-          if (pathSafe)
-            legalMoves.add(move);
-        } else {
-          legalMoves.add(move);
-        }
-      }
-      // check if the move puts (or leaves) the own king in check position
-      if (move.sEvent() == SpecialEvent.Castle) {
-        // check if the own king is already in check
-        // check if any cell in the path of the castle is attacked
-      }
-    }
-    return legalMoves;
+  /**
+   * Converts a move encoded on the current position back to a {@link Move}.
+   */
+  public Move toMove(int move) {
+    return Moves.toMove(move, pieceOf(board.get(Moves.from(move))));
   }
 
   public boolean isSquareAttacked(Coords square, int enemyId) {
-    Map<Coords, Piece> enemyPieces = getPlayerPieces(enemyId);
-    for (Map.Entry<Coords, Piece> entry : enemyPieces.entrySet()) {
-      ArrayList<Move> moves = getValidMovesOf(entry.getKey());
-      for (Move move : moves) {
-        if (move.end().equals(square))
-          return true;
-      }
-    }
-    return false;
+    return Board.isOnBoard(square) && isSquareAttacked(Board.square(square), enemyId);
   }
 
+  private boolean isSquareAttacked(int square, int enemyId) {
+    return Attacks.isSquareAttacked(board, square, enemyId - 1);
+  }
+
+  /**
+   * Starts the active agent's decision on a copy of the position. The move is
+   * played on the Swing thread, unless the decision was cancelled or
+   * superseded in the meantime. Nothing is started once the game is over.
+   */
   private void maybeTriggerAI() {
     Player current = getActivePlayer();
-    if (current instanceof Agent && !aiThinking && !waitingForCoronation) {
-      aiThinking = true;
-      new Thread(() -> {
-        try {
-          Move move = ((Agent) current).decideMove(this);
-          if (move != null) {
-            javax.swing.SwingUtilities.invokeLater(() -> {
-              move(move);
-              if (onBoardUpdated != null)
-                onBoardUpdated.run();
-              maybeTriggerAI();
-            });
-          } else {
-            aiThinking = false;
-          }
-        } finally {
-          /*
-           * if (onBoardUpdated != null)
-           * onBoardUpdated.run();
-           */
-        }
-        maybeTriggerAI();
-      }).start();
+    if (!autoPlay || gameIsOver || !(current instanceof Agent) || pendingDecision != null
+        || waitingForCoronation)
+      return;
+    long start = System.nanoTime();
+    int bookMove = bookMove();
+    CompletableFuture<Decision> decision;
+    if (bookMove != Moves.NONE) {
+      decision = CompletableFuture.completedFuture(new Decision(toMove(bookMove), System.nanoTime() - start));
+    } else {
+      if (agentExecutor == null)
+        agentExecutor = new AgentExecutor();
+      decision = agentExecutor.submit((Agent) current, new Game(this));
     }
+    pendingDecision = decision;
+    decision.thenAccept(result -> javax.swing.SwingUtilities.invokeLater(() -> {
+      if (pendingDecision != decision)
+        return;
+      pendingDecision = null;
+      lastDecision = result;
+      if (result.move() == null)
+        return;
+      long key = board.getKey();
+      bookPromotion = bookMove == Moves.NONE ? null : Moves.promotionType(bookMove);
+      move(result.move());
+      bookPromotion = null;
+      // an ignored move leaves the position as it was: asking again would loop
+      if (board.getKey() == key)
+        return;
+      if (onBoardUpdated != null)
+        onBoardUpdated.run();
+      maybeTriggerAI();
+    }));
   }
 
-  private int computeBoardHash() {
-    int hash = activePlayer;
-    for (Map.Entry<Coords, Piece> entry : pieces.entrySet()) {
-      Coords coords = entry.getKey();
-      Piece piece = entry.getValue();
-      int pieceHash = coords.row() * 31 + coords.col();
-      pieceHash = pieceHash * 31 + piece.getType().ordinal();
-      pieceHash = pieceHash * 31 + piece.getOwner().id;
-      hash = hash * 31 + pieceHash;
-    }
-    return hash;
+  /**
+   * Drops the decision in progress, so its move is never played.
+   */
+  private void cancelDecision() {
+    pendingDecision = null;
+    if (agentExecutor != null)
+      agentExecutor.cancel();
+  }
+
+  /**
+   * The last agent decision played or found empty, with the time it took;
+   * null before the first one.
+   */
+  public Decision getLastDecision() {
+    return lastDecision;
+  }
+
+  /**
+   * Runs the agents' decisions; null until the first one is started.
+   */
+  public AgentExecutor getAgentExecutor() {
+    return agentExecutor;
+  }
+
+  private int bookMove() {
+    return openingBook == null ? Moves.NONE : openingBook.pickMove(board, bookRandom);
+  }
+
+  /**
+   * Zobrist key of the current position, covering pieces, side to move,
+   * castling rights and a capturable en passant square. It is maintained
+   * incrementally by every move, undo and piece edit.
+   */
+  public long getPositionKey() {
+    return board.getKey();
   }
 
   private boolean isThreefoldRepetition() {
-    int currentHash = computeBoardHash();
+    long currentKey = board.getKey();
     int count = 0;
-    for (int hash : boardStateHistory) {
-      if (hash == currentHash)
+    for (long key : boardStateHistory) {
+      if (key == currentKey)
         count++;
       if (count >= 3)
         return true;
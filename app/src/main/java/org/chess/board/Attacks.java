@@ -0,0 +1,152 @@
+package org.chess.board;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed attack tables and square attack queries. Instead of generating
+ * the moves of every enemy piece, a query looks outward from the target
+ * square: knight and king jumps, the two pawn squares that could capture onto
+ * it, and the first piece along each slider ray.
+ */
+public final class Attacks {
+  // the first four directions are orthogonal, the last four diagonal
+  static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 },
+      { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+  private static final int[][] KNIGHT_JUMPS = { { 2, 1 }, { -2, 1 }, { 2, -1 }, { -2, -1 },
+      { 1, 2 }, { -1, 2 }, { 1, -2 }, { -1, -2 } };
+
+  public static final int[][] KNIGHT = new int[Board.SQUARES][];
+  public static final int[][] KING = new int[Board.SQUARES][];
+  // RAYS[direction][square] lists the squares outward from square, nearest first
+  public static final int[][][] RAYS = new int[DIRECTIONS.length][Board.SQUARES][];
+  // PAWN_SOURCES[side][square] lists where a pawn of side must stand to attack square
+  public static final int[][][] PAWN_SOURCES = new int[2][Board.SQUARES][];
+
+  static {
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      KNIGHT[sq] = steps(sq, KNIGHT_JUMPS);
+      KING[sq] = steps(sq, DIRECTIONS);
+      for (int d = 0; d < DIRECTIONS.length; d++)
+        RAYS[d][sq] = ray(sq, DIRECTIONS[d]);
+      PAWN_SOURCES[Board.WHITE][sq] = steps(sq, new int[][] { { -1, -1 }, { -1, 1 } });
+      PAWN_SOURCES[Board.BLACK][sq] = steps(sq, new int[][] { { 1, -1 }, { 1, 1 } });
+    }
+  }
+
+  private Attacks() {
+  }
+
+  private static int[] steps(int sq, int[][] offsets) {
+    int[] targets = new int[offsets.length];
+    int count = 0;
+    for (int[] offset : offsets) {
+      int row = Board.row(sq) + offset[0];
+      int col = Board.col(sq) + offset[1];
+      if (Board.isOnBoard(row, col))
+        targets[count++] = Board.square(row, col);
+    }
+    return Arrays.copyOf(targets, count);
+  }
+
+  private static int[] ray(int sq, int[] direction) {
+    int[] targets = new int[Board.SIZE];
+    int count = 0;
+    int row = Board.row(sq) + direction[0];
+    int col = Board.col(sq) + direction[1];
+    while (Board.isOnBoard(row, col)) {
+      targets[count++] = Board.square(row, col);
+      row += direction[0];
+      col += direction[1];
+    }
+    return Arrays.copyOf(targets, count);
+  }
+
+  public static boolean isOrthogonal(int direction) {
+    return direction < 4;
+  }
+
+  /**
+   * Whether any piece of {@code side} attacks {@code sq}.
+   */
+  public static boolean isSquareAttacked(Board board, int sq, int side) {
+    return isSquareAttacked(board, sq, side, Board.NO_SQUARE);
+  }
+
+  /**
+   * Like {@link #isSquareAttacked(Board, int, int)}, but sliders see through
+   * {@code ignored} as if it were empty. Used to test king moves, where the
+   * king must not shield the square it is stepping to.
+   */
+  public static boolean isSquareAttacked(Board board, int sq, int side, int ignored) {
+    int flag = side == Board.BLACK ? Board.BLACK_FLAG : 0;
+    for (int source : PAWN_SOURCES[side][sq]) {
+      if (pieceOf(board.get(source)) == (Board.PAWN | flag))
+        return true;
+    }
+    for (int source : KNIGHT[sq]) {
+      if (pieceOf(board.get(source)) == (Board.KNIGHT | flag))
+        return true;
+    }
+    for (int source : KING[sq]) {
+      if (pieceOf(board.get(source)) == (Board.KING | flag))
+        return true;
+    }
+    for (int d = 0; d < DIRECTIONS.length; d++) {
+      int slider = isOrthogonal(d) ? Board.ROOK : Board.BISHOP;
+      for (int source : RAYS[d][sq]) {
+        int code = board.get(source);
+        if (code == Board.EMPTY || source == ignored)
+          continue;
+        int piece = pieceOf(code);
+        if (piece == (slider | flag) || piece == (Board.QUEEN | flag))
+          return true;
+        break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Squares of the pieces of either side that attack {@code sq}, looking only
+   * at pieces on {@code occupied}. Removing a piece from {@code occupied}
+   * lets sliders behind it through, which is how exchanges uncover x-ray
+   * attackers.
+   */
+  public static long attackersTo(Board board, int sq, long occupied) {
+    long attackers = 0;
+    for (int side = Board.WHITE; side <= Board.BLACK; side++) {
+      int pawn = Board.PAWN | (side == Board.BLACK ? Board.BLACK_FLAG : 0);
+      for (int source : PAWN_SOURCES[side][sq]) {
+        if (pieceOf(board.get(source)) == pawn)
+          attackers |= 1L << source;
+      }
+    }
+    for (int source : KNIGHT[sq]) {
+      if (Board.typeOf(board.get(source)) == Board.KNIGHT)
+        attackers |= 1L << source;
+    }
+    for (int source : KING[sq]) {
+      if (Board.typeOf(board.get(source)) == Board.KING)
+        attackers |= 1L << source;
+    }
+    for (int d = 0; d < DIRECTIONS.length; d++) {
+      int slider = isOrthogonal(d) ? Board.ROOK : Board.BISHOP;
+      for (int source : RAYS[d][sq]) {
+        if ((occupied & 1L << source) == 0)
+          continue;
+        int type = Board.typeOf(board.get(source));
+        if (type == slider || type == Board.QUEEN)
+          attackers |= 1L << source;
+        break;
+      }
+    }
+    return attackers & occupied;
+  }
+
+  /**
+   * Piece type and colour of a code, without the moved flag.
+   */
+  static int pieceOf(int code) {
+    return code & (Board.TYPE_MASK | Board.BLACK_FLAG);
+  }
+}
@@ -0,0 +1,372 @@
+package org.chess.board;
+
+import java.util.Arrays;
+
+import org.chess.utils.Coords;
+import org.chess.utils.PieceType;
+
+/**
+ * Square-indexed board backing {@link org.chess.Game}.
+ *
+ * Squares are numbered {@code row * 8 + col}, so a1 is 0 and h8 is 63. Each
+ * square holds a piece code: the low three bits are the piece type
+ * ({@link PieceType#ordinal()} + 1, 0 for an empty square), {@link #BLACK_FLAG}
+ * marks pieces of player 2 and {@link #MOVED_FLAG} records whether the piece
+ * has moved.
+ *
+ * The board also keeps its {@link Zobrist} key and {@link PieceSquare} sums
+ * current on every change, and
+ * supports allocation-free {@link #makeMove(int)} / {@link #unmakeMove()} over
+ * a preallocated undo stack for search.
+ */
+public final class Board {
+  public static final int SIZE = 8;
+  public static final int SQUARES = SIZE * SIZE;
+
+  public static final int WHITE = 0;
+  public static final int BLACK = 1;
+
+  public static final int EMPTY = 0;
+  public static final int PAWN = 1;
+  public static final int ROOK = 2;
+  public static final int KNIGHT = 3;
+  public static final int BISHOP = 4;
+  public static final int QUEEN = 5;
+  public static final int KING = 6;
+
+  public static final int TYPE_MASK = 0x07;
+  public static final int BLACK_FLAG = 0x08;
+  public static final int MOVED_FLAG = 0x10;
+  public static final int CODE_COUNT = 0x20;
+
+  public static final int NO_SQUARE = -1;
+
+  private static final int INITIAL_UNDO_CAPACITY = 256;
+
+  private static final Coords[] COORDS = new Coords[SQUARES];
+  private static final PieceType[] TYPES = PieceType.values();
+
+  static {
+    for (int sq = 0; sq < SQUARES; sq++)
+      COORDS[sq] = new Coords(row(sq), col(sq));
+  }
+
+  private final byte[] squares = new byte[SQUARES];
+  private final int[] kingSquares = { NO_SQUARE, NO_SQUARE };
+  // one bit per occupied square
+  private long occupied;
+  private int pieceCount;
+  private int sideToMove = WHITE;
+  private int epSquare = NO_SQUARE;
+  private int castlingRights;
+  private long epKey;
+  private long key;
+  private int mgScore;
+  private int egScore;
+  private int phase;
+
+  // undo stack: the move, the packed state before it and the key before it;
+  // allocated by the first move, so boards that are only copied stay small
+  private int[] undoMoves = {};
+  private int[] undoStates = {};
+  private long[] undoKeys = {};
+  private int undoSize;
+
+  public Board() {
+  }
+
+  public Board(Board other) {
+    copyFrom(other);
+  }
+
+  /**
+   * Copies the position of another board. The undo stack is not copied, so
+   * moves made before the copy cannot be unmade on it.
+   */
+  public void copyFrom(Board other) {
+    System.arraycopy(other.squares, 0, squares, 0, SQUARES);
+    kingSquares[WHITE] = other.kingSquares[WHITE];
+    kingSquares[BLACK] = other.kingSquares[BLACK];
+    occupied = other.occupied;
+    pieceCount = other.pieceCount;
+    sideToMove = other.sideToMove;
+    epSquare = other.epSquare;
+    castlingRights = other.castlingRights;
+    epKey = other.epKey;
+    key = other.key;
+    mgScore = other.mgScore;
+    egScore = other.egScore;
+    phase = other.phase;
+    undoSize = 0;
+  }
+
+  public void clearAll() {
+    Arrays.fill(squares, (byte) EMPTY);
+    kingSquares[WHITE] = NO_SQUARE;
+    kingSquares[BLACK] = NO_SQUARE;
+    occupied = 0;
+    pieceCount = 0;
+    sideToMove = WHITE;
+    epSquare = NO_SQUARE;
+    castlingRights = 0;
+    epKey = 0;
+    key = 0;
+    mgScore = 0;
+    egScore = 0;
+    phase = 0;
+    undoSize = 0;
+  }
+
+  public int get(int sq) {
+    return squares[sq];
+  }
+
+  public boolean isEmpty(int sq) {
+    return squares[sq] == EMPTY;
+  }
+
+  public void set(int sq, int code) {
+    if (squares[sq] != EMPTY)
+      clear(sq);
+    if (code == EMPTY)
+      return;
+    squares[sq] = (byte) code;
+    occupied |= 1L << sq;
+    pieceCount++;
+    key ^= Zobrist.piece(code, sq);
+    mgScore += PieceSquare.mg(code, sq);
+    egScore += PieceSquare.eg(code, sq);
+    phase += PieceSquare.phase(code);
+    if ((code & TYPE_MASK) == KING)
+      kingSquares[sideOf(code)] = sq;
+    if (isCastlingSquare(sq))
+      refreshCastlingRights();
+  }
+
+  public void clear(int sq) {
+    int code = squares[sq];
+    if (code == EMPTY)
+      return;
+    squares[sq] = EMPTY;
+    occupied &= ~(1L << sq);
+    pieceCount--;
+    key ^= Zobrist.piece(code, sq);
+    mgScore -= PieceSquare.mg(code, sq);
+    egScore -= PieceSquare.eg(code, sq);
+    phase -= PieceSquare.phase(code);
+    if ((code & TYPE_MASK) == KING && kingSquares[sideOf(code)] == sq)
+      kingSquares[sideOf(code)] = NO_SQUARE;
+    if (isCastlingSquare(sq))
+      refreshCastlingRights();
+  }
+
+  private static boolean isCastlingSquare(int sq) {
+    return sq == 0 || sq == 4 || sq == 7 || sq == 56 || sq == 60 || sq == 63;
+  }
+
+  private void refreshCastlingRights() {
+    int rights = Zobrist.castlingRights(this);
+    key ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[rights];
+    castlingRights = rights;
+  }
+
+  public int kingSquare(int side) {
+    return kingSquares[side];
+  }
+
+  public long occupied() {
+    return occupied;
+  }
+
+  public int pieceCount() {
+    return pieceCount;
+  }
+
+  public int getSideToMove() {
+    return sideToMove;
+  }
+
+  public void setSideToMove(int side) {
+    if (side != sideToMove)
+      key ^= Zobrist.SIDE;
+    sideToMove = side;
+  }
+
+  public int getEpSquare() {
+    return epSquare;
+  }
+
+  /**
+   * Sets the en passant target square. Call it after the pieces are in place:
+   * the key only includes the square when a pawn can capture onto it.
+   */
+  public void setEpSquare(int sq) {
+    key ^= epKey;
+    epSquare = sq;
+    epKey = Zobrist.isEpCapturable(this, sq) ? Zobrist.EP_FILE[col(sq)] : 0;
+    key ^= epKey;
+  }
+
+  public int getCastlingRights() {
+    return castlingRights;
+  }
+
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Middlegame material and piece-square sum, white minus black.
+   */
+  public int getMgScore() {
+    return mgScore;
+  }
+
+  /**
+   * Endgame material and piece-square sum, white minus black.
+   */
+  public int getEgScore() {
+    return egScore;
+  }
+
+  public int getPhase() {
+    return phase;
+  }
+
+  /**
+   * Plays a move encoded with {@link Moves}. Only the board changes: no
+   * legality check is made and nothing is allocated once the undo stack has
+   * grown to the search depth.
+   */
+  public void makeMove(int move) {
+    int from = Moves.from(move);
+    int to = Moves.to(move);
+    int special = Moves.special(move);
+    int piece = squares[from];
+    int side = sideOf(piece);
+    int capturedSquare = special == Moves.EN_PASSANT ? square(row(from), col(to)) : to;
+    int captured = squares[capturedSquare];
+
+    if (undoSize == undoMoves.length)
+      growUndoStack();
+    undoMoves[undoSize] = move;
+    undoStates[undoSize] = piece | captured << 5 | (epSquare + 1) << 10 | castlingRights << 17
+        | sideToMove << 21;
+    undoKeys[undoSize] = key;
+    undoSize++;
+
+    clear(capturedSquare);
+    clear(from);
+    if (special == Moves.CORONATION) {
+      int promotion = Moves.promotion(move) == EMPTY ? QUEEN : Moves.promotion(move);
+      set(to, promotion | (piece & BLACK_FLAG) | MOVED_FLAG);
+    } else {
+      set(to, piece | MOVED_FLAG);
+    }
+
+    if (special == Moves.CASTLE) {
+      int rookFrom = col(to) == 6 ? to + 1 : to - 2;
+      int rookTo = col(to) == 6 ? to - 1 : to + 1;
+      int rook = squares[rookFrom];
+      clear(rookFrom);
+      set(rookTo, rook | MOVED_FLAG);
+    }
+
+    setEpSquare(special == Moves.DOUBLE_PAWN_MOVE ? (from + to) / 2 : NO_SQUARE);
+    setSideToMove(side ^ 1);
+  }
+
+  public void unmakeMove() {
+    undoSize--;
+    int move = undoMoves[undoSize];
+    int state = undoStates[undoSize];
+    int from = Moves.from(move);
+    int to = Moves.to(move);
+    int special = Moves.special(move);
+    int piece = state & 0x1F;
+    int captured = state >>> 5 & 0x1F;
+
+    clear(to);
+    set(from, piece);
+    if (captured != EMPTY)
+      set(special == Moves.EN_PASSANT ? square(row(from), col(to)) : to, captured);
+
+    if (special == Moves.CASTLE) {
+      int rookFrom = col(to) == 6 ? to + 1 : to - 2;
+      int rookTo = col(to) == 6 ? to - 1 : to + 1;
+      int rook = squares[rookTo];
+      clear(rookTo);
+      set(rookFrom, rook & ~MOVED_FLAG);
+    }
+
+    setEpSquare((state >>> 10 & 0x7F) - 1);
+    setSideToMove(state >>> 21 & 1);
+    castlingRights = state >>> 17 & 0x0F;
+    key = undoKeys[undoSize];
+  }
+
+  public int undoDepth() {
+    return undoSize;
+  }
+
+  private void growUndoStack() {
+    int capacity = Math.max(INITIAL_UNDO_CAPACITY, undoMoves.length * 2);
+    undoMoves = Arrays.copyOf(undoMoves, capacity);
+    undoStates = Arrays.copyOf(undoStates, capacity);
+    undoKeys = Arrays.copyOf(undoKeys, capacity);
+  }
+
+  public static int encode(PieceType type, int side, boolean moved) {
+    int code = type.ordinal() + 1;
+    if (side == BLACK)
+      code |= BLACK_FLAG;
+    if (moved)
+      code |= MOVED_FLAG;
+    return code;
+  }
+
+  public static int typeOf(int code) {
+    return code & TYPE_MASK;
+  }
+
+  public static PieceType pieceType(int code) {
+    int type = code & TYPE_MASK;
+    return type == EMPTY ? null : TYPES[type - 1];
+  }
+
+  public static int sideOf(int code) {
+    return (code & BLACK_FLAG) == 0 ? WHITE : BLACK;
+  }
+
+  public static boolean hasMoved(int code) {
+    return (code & MOVED_FLAG) != 0;
+  }
+
+  public static int square(int row, int col) {
+    return row * SIZE + col;
+  }
+
+  public static int square(Coords coords) {
+    return coords.row() * SIZE + coords.col();
+  }
+
+  public static boolean isOnBoard(int row, int col) {
+    return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+  }
+
+  public static boolean isOnBoard(Coords coords) {
+    return coords != null && isOnBoard(coords.row(), coords.col());
+  }
+
+  public static int row(int sq) {
+    return sq >> 3;
+  }
+
+  public static int col(int sq) {
+    return sq & 7;
+  }
+
+  public static Coords coords(int sq) {
+    return COORDS[sq];
+  }
+}
@@ -0,0 +1,222 @@
+package org.chess.board;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation for a {@link Board}.
+ *
+ * Castling rights are stored as moved flags: a king or corner rook keeps its
+ * unmoved flag only when a matching right is listed, and pawns are unmoved
+ * on their starting rank. The move counters are not part of the board and
+ * are returned to the caller.
+ *
+ * The parser reads the string once, character by character, and places every
+ * piece on the board once; a valid FEN is written back exactly as read.
+ */
+public final class Fen {
+  public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+  // indexed by board type code
+  private static final String PIECES = ".prnbqk";
+
+  /**
+   * The two move counters of a FEN.
+   */
+  public record Counters(int halfmoveClock, int fullmoveNumber) {
+    public static final Counters INITIAL = new Counters(0, 1);
+  }
+
+  private Fen() {
+  }
+
+  /**
+   * Sets up {@code board} from {@code fen}. The castling, en passant and
+   * counter fields may be left out.
+   */
+  public static Counters load(Board board, String fen) {
+    int[] codes = new int[Board.SQUARES];
+    int length = fen.length();
+    int i = skipSpaces(fen, 0);
+
+    int row = 7;
+    int col = 0;
+    for (; i < length && !Character.isWhitespace(fen.charAt(i)); i++) {
+      char c = fen.charAt(i);
+      if (c == '/') {
+        if (col != 8 || row == 0)
+          throw invalid(fen);
+        row--;
+        col = 0;
+      } else if (c >= '1' && c <= '8') {
+        col += c - '0';
+        if (col > 8)
+          throw invalid(fen);
+      } else {
+        int type = typeOf(Character.toLowerCase(c));
+        if (type == Board.EMPTY || col > 7)
+          throw invalid(fen);
+        boolean black = Character.isLowerCase(c);
+        int code = type | (black ? Board.BLACK_FLAG : 0);
+        if (type == Board.KING || type == Board.ROOK || type == Board.PAWN && row != (black ? 6 : 1))
+          code |= Board.MOVED_FLAG;
+        codes[Board.square(row, col++)] = code;
+      }
+    }
+    if (row != 0 || col != 8)
+      throw invalid(fen);
+
+    i = skipSpaces(fen, i);
+    if (i >= length || !isFieldEnd(fen, i + 1))
+      throw invalid(fen);
+    int side = switch (fen.charAt(i++)) {
+      case 'w' -> Board.WHITE;
+      case 'b' -> Board.BLACK;
+      default -> throw invalid(fen);
+    };
+
+    i = skipSpaces(fen, i);
+    if (i < length && fen.charAt(i) == '-') {
+      i++;
+    } else {
+      for (; i < length && !Character.isWhitespace(fen.charAt(i)); i++) {
+        switch (fen.charAt(i)) {
+          case 'K' -> grantCastle(codes, 0, 7);
+          case 'Q' -> grantCastle(codes, 0, 0);
+          case 'k' -> grantCastle(codes, 7, 7);
+          case 'q' -> grantCastle(codes, 7, 0);
+          default -> throw invalid(fen);
+        }
+      }
+    }
+    if (!isFieldEnd(fen, i))
+      throw invalid(fen);
+
+    int epSquare = Board.NO_SQUARE;
+    i = skipSpaces(fen, i);
+    if (i < length && fen.charAt(i) == '-') {
+      i++;
+    } else if (i + 1 < length) {
+      int epCol = fen.charAt(i) - 'a';
+      int epRow = fen.charAt(i + 1) - '1';
+      // only the square a pawn of the side that just moved has skipped
+      if (!Board.isOnBoard(epRow, epCol) || epRow != (side == Board.WHITE ? 5 : 2))
+        throw invalid(fen);
+      epSquare = Board.square(epRow, epCol);
+      i += 2;
+    }
+    if (!isFieldEnd(fen, i))
+      throw invalid(fen);
+
+    int halfmoveClock = 0;
+    int fullmoveNumber = 1;
+    i = skipSpaces(fen, i);
+    if (i < length) {
+      int start = i;
+      for (halfmoveClock = 0; i < length && isDigit(fen.charAt(i)); i++)
+        halfmoveClock = halfmoveClock * 10 + fen.charAt(i) - '0';
+      if (i == start || !isFieldEnd(fen, i))
+        throw invalid(fen);
+      i = skipSpaces(fen, i);
+      if (i < length) {
+        start = i;
+        for (fullmoveNumber = 0; i < length && isDigit(fen.charAt(i)); i++)
+          fullmoveNumber = fullmoveNumber * 10 + fen.charAt(i) - '0';
+        if (i == start || skipSpaces(fen, i) != length)
+          throw invalid(fen);
+      }
+    }
+
+    board.clearAll();
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      if (codes[sq] != Board.EMPTY)
+        board.set(sq, codes[sq]);
+    }
+    board.setSideToMove(side);
+    board.setEpSquare(epSquare);
+    return new Counters(halfmoveClock, fullmoveNumber);
+  }
+
+  /**
+   * Writes {@code board} as a FEN with the given move counters.
+   */
+  public static String toFen(Board board, Counters counters) {
+    StringBuilder sb = new StringBuilder(90);
+    for (int row = 7; row >= 0; row--) {
+      int empty = 0;
+      for (int col = 0; col < 8; col++) {
+        int code = board.get(Board.square(row, col));
+        if (code == Board.EMPTY) {
+          empty++;
+          continue;
+        }
+        if (empty > 0) {
+          sb.append((char) ('0' + empty));
+          empty = 0;
+        }
+        char c = PIECES.charAt(Board.typeOf(code));
+        sb.append(Board.sideOf(code) == Board.WHITE ? Character.toUpperCase(c) : c);
+      }
+      if (empty > 0)
+        sb.append((char) ('0' + empty));
+      if (row > 0)
+        sb.append('/');
+    }
+
+    sb.append(board.getSideToMove() == Board.WHITE ? " w " : " b ");
+    int rights = board.getCastlingRights();
+    if (rights == 0)
+      sb.append('-');
+    if ((rights & Zobrist.WHITE_KING_SIDE) != 0)
+      sb.append('K');
+    if ((rights & Zobrist.WHITE_QUEEN_SIDE) != 0)
+      sb.append('Q');
+    if ((rights & Zobrist.BLACK_KING_SIDE) != 0)
+      sb.append('k');
+    if ((rights & Zobrist.BLACK_QUEEN_SIDE) != 0)
+      sb.append('q');
+
+    int epSquare = board.getEpSquare();
+    sb.append(' ');
+    if (epSquare == Board.NO_SQUARE)
+      sb.append('-');
+    else
+      sb.append((char) ('a' + Board.col(epSquare))).append((char) ('1' + Board.row(epSquare)));
+    return sb.append(' ').append(counters.halfmoveClock()).append(' ').append(counters.fullmoveNumber())
+        .toString();
+  }
+
+  private static void grantCastle(int[] codes, int row, int rookCol) {
+    int kingSquare = Board.square(row, 4);
+    int rookSquare = Board.square(row, rookCol);
+    int side = row == 0 ? Board.WHITE : Board.BLACK;
+    int king = codes[kingSquare];
+    int rook = codes[rookSquare];
+    if (Board.typeOf(king) != Board.KING || Board.sideOf(king) != side)
+      return;
+    if (Board.typeOf(rook) != Board.ROOK || Board.sideOf(rook) != side)
+      return;
+    codes[kingSquare] = king & ~Board.MOVED_FLAG;
+    codes[rookSquare] = rook & ~Board.MOVED_FLAG;
+  }
+
+  private static int skipSpaces(String fen, int i) {
+    while (i < fen.length() && Character.isWhitespace(fen.charAt(i)))
+      i++;
+    return i;
+  }
+
+  private static boolean isFieldEnd(String fen, int i) {
+    return i >= fen.length() || Character.isWhitespace(fen.charAt(i));
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static IllegalArgumentException invalid(String fen) {
+    return new IllegalArgumentException("Invalid FEN: " + fen);
+  }
+
+  static int typeOf(char c) {
+    int type = PIECES.indexOf(c);
+    return type < 1 ? Board.EMPTY : type;
+  }
+}
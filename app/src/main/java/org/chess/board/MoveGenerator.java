@@ -0,0 +1,242 @@
+package org.chess.board;
+
+/**
+ * Legal move generator. Checkers and pinned pieces are found once per position
+ * by scanning outward from the king, so every emitted move is legal without
+ * playing it and testing for check:
+ * <ul>
+ * <li>in double check only the king moves;</li>
+ * <li>in single check other pieces may only capture the checker or block;</li>
+ * <li>a pinned piece may only move along the line through its king;</li>
+ * <li>the king may not step onto an attacked square, with sliders seeing
+ * through the square it leaves.</li>
+ * </ul>
+ * En passant is the one move still verified by playing it, since removing two
+ * pawns from a rank can uncover a check no pin test sees.
+ *
+ * Coronations are emitted once per promotion piece, queen first.
+ */
+public final class MoveGenerator {
+  // no legal position has more than 218 moves
+  public static final int MAX_MOVES = 256;
+
+  private static final int[] PROMOTIONS = { Board.QUEEN, Board.ROOK, Board.BISHOP, Board.KNIGHT };
+  // { rook column, king destination, columns that must be empty }
+  private static final int[][] CASTLE_OPTIONS = { { 0, 2, 1, 2, 3 }, { 7, 6, 5, 6 } };
+  // LINE[a][b] holds every square on the line through a and b, 0 if they are not aligned
+  private static final long[][] LINE = new long[Board.SQUARES][Board.SQUARES];
+
+  static {
+    for (int a = 0; a < Board.SQUARES; a++) {
+      for (int d = 0; d < Attacks.DIRECTIONS.length; d++) {
+        long line = 1L << a | rayMask(a, d) | rayMask(a, opposite(d));
+        for (int b : Attacks.RAYS[d][a])
+          LINE[a][b] = line;
+      }
+    }
+  }
+
+  private MoveGenerator() {
+  }
+
+  private static long rayMask(int sq, int direction) {
+    long mask = 0;
+    for (int target : Attacks.RAYS[direction][sq])
+      mask |= 1L << target;
+    return mask;
+  }
+
+  private static int opposite(int direction) {
+    int[] dir = Attacks.DIRECTIONS[direction];
+    for (int d = 0; d < Attacks.DIRECTIONS.length; d++) {
+      if (Attacks.DIRECTIONS[d][0] == -dir[0] && Attacks.DIRECTIONS[d][1] == -dir[1])
+        return d;
+    }
+    throw new IllegalStateException();
+  }
+
+  /**
+   * Clears {@code moves} and fills it with the legal moves of {@code side},
+   * encoded with {@link Moves}.
+   */
+  public static void generateLegal(Board board, int side, MoveList moves) {
+    moves.clear();
+    int them = side ^ 1;
+    int themFlag = them == Board.BLACK ? Board.BLACK_FLAG : 0;
+    int king = board.kingSquare(side);
+
+    int checkers = 0;
+    long checkMask = -1L;
+    long pinned = 0;
+    if (king != Board.NO_SQUARE) {
+      long evasions = 0;
+      for (int source : Attacks.PAWN_SOURCES[them][king]) {
+        if (Attacks.pieceOf(board.get(source)) == (Board.PAWN | themFlag)) {
+          checkers++;
+          evasions |= 1L << source;
+        }
+      }
+      for (int source : Attacks.KNIGHT[king]) {
+        if (Attacks.pieceOf(board.get(source)) == (Board.KNIGHT | themFlag)) {
+          checkers++;
+          evasions |= 1L << source;
+        }
+      }
+      for (int d = 0; d < Attacks.DIRECTIONS.length; d++) {
+        int slider = (Attacks.isOrthogonal(d) ? Board.ROOK : Board.BISHOP) | themFlag;
+        long path = 0;
+        int own = Board.NO_SQUARE;
+        for (int sq : Attacks.RAYS[d][king]) {
+          path |= 1L << sq;
+          int code = board.get(sq);
+          if (code == Board.EMPTY)
+            continue;
+          if (Board.sideOf(code) == side) {
+            if (own != Board.NO_SQUARE)
+              break;
+            own = sq;
+            continue;
+          }
+          int piece = Attacks.pieceOf(code);
+          if (piece == slider || piece == (Board.QUEEN | themFlag)) {
+            if (own == Board.NO_SQUARE) {
+              checkers++;
+              evasions |= path;
+            } else {
+              pinned |= 1L << own;
+            }
+          }
+          break;
+        }
+      }
+      if (checkers > 0)
+        checkMask = evasions;
+    }
+
+    for (int from = 0; from < Board.SQUARES; from++) {
+      int code = board.get(from);
+      if (code == Board.EMPTY || Board.sideOf(code) != side)
+        continue;
+      if (from == king) {
+        addKingMoves(board, king, side, checkers == 0, moves);
+        continue;
+      }
+      if (checkers > 1)
+        continue;
+      long allowed = (pinned & 1L << from) != 0 ? checkMask & LINE[king][from] : checkMask;
+      switch (Board.typeOf(code)) {
+        case Board.PAWN -> addPawnMoves(board, from, code, king, allowed, moves);
+        case Board.KNIGHT -> addSteps(board, from, code, Attacks.KNIGHT[from], allowed, moves);
+        case Board.BISHOP -> addSlides(board, from, code, 4, 8, allowed, moves);
+        case Board.ROOK -> addSlides(board, from, code, 0, 4, allowed, moves);
+        case Board.QUEEN -> addSlides(board, from, code, 0, 8, allowed, moves);
+        case Board.KING -> addSteps(board, from, code, Attacks.KING[from], allowed, moves);
+        default -> {
+        }
+      }
+    }
+  }
+
+  private static void addKingMoves(Board board, int king, int side, boolean canCastle, MoveList moves) {
+    int them = side ^ 1;
+    for (int to : Attacks.KING[king]) {
+      int target = board.get(to);
+      if (target != Board.EMPTY && Board.sideOf(target) == side)
+        continue;
+      if (!Attacks.isSquareAttacked(board, to, them, king))
+        moves.add(Moves.encode(king, to, Board.KING, Board.typeOf(target), Moves.NORMAL, 0));
+    }
+
+    int code = board.get(king);
+    if (!canCastle || Board.hasMoved(code))
+      return;
+    int row = Board.row(king);
+    for (int[] option : CASTLE_OPTIONS) {
+      int rook = board.get(Board.square(row, option[0]));
+      if (Board.typeOf(rook) != Board.ROOK || Board.sideOf(rook) != side || Board.hasMoved(rook))
+        continue;
+      boolean legal = true;
+      for (int i = 2; i < option.length && legal; i++)
+        legal = board.isEmpty(Board.square(row, option[i]));
+      int step = option[1] > Board.col(king) ? 1 : -1;
+      for (int col = Board.col(king) + step; legal && col != option[1] + step; col += step)
+        legal = !Attacks.isSquareAttacked(board, Board.square(row, col), them);
+      if (legal)
+        moves.add(Moves.encode(king, Board.square(row, option[1]), Board.KING, Board.EMPTY, Moves.CASTLE, 0));
+    }
+  }
+
+  private static void addPawnMoves(Board board, int from, int code, int king, long allowed, MoveList moves) {
+    int side = Board.sideOf(code);
+    int dir = side == Board.WHITE ? 1 : -1;
+    int row = Board.row(from) + dir;
+    if (row < 0 || row >= Board.SIZE)
+      return;
+    boolean promotes = row == 0 || row == Board.SIZE - 1;
+    int col = Board.col(from);
+
+    int oneUp = Board.square(row, col);
+    if (board.isEmpty(oneUp)) {
+      if ((allowed & 1L << oneUp) != 0)
+        addPawnMove(from, oneUp, Board.EMPTY, promotes, moves);
+      int twoUpRow = row + dir;
+      if (!Board.hasMoved(code) && twoUpRow >= 0 && twoUpRow < Board.SIZE) {
+        int twoUp = Board.square(twoUpRow, col);
+        if (board.isEmpty(twoUp) && (allowed & 1L << twoUp) != 0)
+          moves.add(Moves.encode(from, twoUp, Board.PAWN, Board.EMPTY, Moves.DOUBLE_PAWN_MOVE, 0));
+      }
+    }
+
+    for (int takeCol = col - 1; takeCol <= col + 1; takeCol += 2) {
+      if (takeCol < 0 || takeCol >= Board.SIZE)
+        continue;
+      int to = Board.square(row, takeCol);
+      int target = board.get(to);
+      if (target != Board.EMPTY && Board.sideOf(target) != side) {
+        if ((allowed & 1L << to) != 0)
+          addPawnMove(from, to, Board.typeOf(target), promotes, moves);
+      } else if (to == board.getEpSquare() && row == (side == Board.WHITE ? 5 : 2)) {
+        int move = Moves.encode(from, to, Board.PAWN, Board.PAWN, Moves.EN_PASSANT, 0);
+        board.makeMove(move);
+        boolean legal = king == Board.NO_SQUARE || !Attacks.isSquareAttacked(board, king, side ^ 1);
+        board.unmakeMove();
+        if (legal)
+          moves.add(move);
+      }
+    }
+  }
+
+  private static void addPawnMove(int from, int to, int captured, boolean promotes, MoveList moves) {
+    if (!promotes) {
+      moves.add(Moves.encode(from, to, Board.PAWN, captured, Moves.NORMAL, 0));
+      return;
+    }
+    for (int promotion : PROMOTIONS)
+      moves.add(Moves.encode(from, to, Board.PAWN, captured, Moves.CORONATION, promotion));
+  }
+
+  private static void addSteps(Board board, int from, int code, int[] targets, long allowed, MoveList moves) {
+    int side = Board.sideOf(code);
+    for (int to : targets) {
+      int target = board.get(to);
+      if ((target == Board.EMPTY || Board.sideOf(target) != side) && (allowed & 1L << to) != 0)
+        moves.add(Moves.encode(from, to, Board.typeOf(code), Board.typeOf(target), Moves.NORMAL, 0));
+    }
+  }
+
+  private static void addSlides(Board board, int from, int code, int firstDirection, int endDirection,
+      long allowed, MoveList moves) {
+    int side = Board.sideOf(code);
+    for (int d = firstDirection; d < endDirection; d++) {
+      for (int to : Attacks.RAYS[d][from]) {
+        int target = board.get(to);
+        if (target != Board.EMPTY && Board.sideOf(target) == side)
+          break;
+        if ((allowed & 1L << to) != 0)
+          moves.add(Moves.encode(from, to, Board.typeOf(code), Board.typeOf(target), Moves.NORMAL, 0));
+        if (target != Board.EMPTY)
+          break;
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package org.chess.board;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of {@link Moves}-encoded moves backed by an {@code int[]}.
+ * Meant to be cleared and refilled rather than reallocated, e.g. one list per
+ * search ply.
+ */
+public final class MoveList {
+  private int[] moves;
+  private int size;
+
+  public MoveList() {
+    this(MoveGenerator.MAX_MOVES);
+  }
+
+  public MoveList(int capacity) {
+    moves = new int[capacity];
+  }
+
+  public void add(int move) {
+    if (size == moves.length)
+      moves = Arrays.copyOf(moves, moves.length * 2);
+    moves[size++] = move;
+  }
+
+  public int get(int index) {
+    return moves[index];
+  }
+
+  public void set(int index, int move) {
+    moves[index] = move;
+  }
+
+  public void swap(int i, int j) {
+    int move = moves[i];
+    moves[i] = moves[j];
+    moves[j] = move;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public boolean contains(int move) {
+    for (int i = 0; i < size; i++) {
+      if (moves[i] == move)
+        return true;
+    }
+    return false;
+  }
+
+  public int[] toArray() {
+    return Arrays.copyOf(moves, size);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(Moves.toString(moves[i]));
+    }
+    return sb.append(']').toString();
+  }
+}
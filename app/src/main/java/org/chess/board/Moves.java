@@ -0,0 +1,120 @@
+package org.chess.board;
+
+import org.chess.pieces.Piece;
+import org.chess.utils.Coords;
+import org.chess.utils.Move;
+import org.chess.utils.PieceType;
+import org.chess.utils.SpecialEvent;
+
+/**
+ * Int encoding of moves, used by {@link Board#makeMove(int)},
+ * {@link MoveGenerator} and {@link MoveList}.
+ *
+ * <pre>
+ * bits  0-5   from square
+ * bits  6-11  to square
+ * bits 12-14  special event ({@link SpecialEvent#ordinal()} + 1, 0 for none)
+ * bits 15-17  promotion piece type (a {@link Board} type code, 0 for none)
+ * bits 18-20  moving piece type
+ * bits 21-23  captured piece type (0 for none, a pawn for en passant)
+ * </pre>
+ *
+ * Only from, to, special event and promotion are needed to play a move; the
+ * piece fields are informational and used for move ordering.
+ */
+public final class Moves {
+  public static final int NONE = 0;
+
+  public static final int NORMAL = 0;
+  public static final int CASTLE = 1;
+  public static final int DOUBLE_PAWN_MOVE = 2;
+  public static final int EN_PASSANT = 3;
+  public static final int CORONATION = 4;
+
+  private static final SpecialEvent[] EVENTS = SpecialEvent.values();
+
+  private Moves() {
+  }
+
+  public static int encode(int from, int to, int special, int promotion) {
+    return from | to << 6 | special << 12 | promotion << 15;
+  }
+
+  public static int encode(int from, int to, int piece, int captured, int special, int promotion) {
+    return from | to << 6 | special << 12 | promotion << 15 | piece << 18 | captured << 21;
+  }
+
+  public static int from(int move) {
+    return move & 0x3F;
+  }
+
+  public static int to(int move) {
+    return move >>> 6 & 0x3F;
+  }
+
+  public static int special(int move) {
+    return move >>> 12 & 0x07;
+  }
+
+  public static int promotion(int move) {
+    return move >>> 15 & 0x07;
+  }
+
+  public static int piece(int move) {
+    return move >>> 18 & 0x07;
+  }
+
+  public static int captured(int move) {
+    return move >>> 21 & 0x07;
+  }
+
+  public static boolean isCapture(int move) {
+    return captured(move) != Board.EMPTY;
+  }
+
+  /**
+   * Encodes a {@link Move} played on {@code board}, reading the moving and
+   * captured pieces from the board. A null promotion on a coronation
+   * promotes to a queen.
+   */
+  public static int of(Board board, Move move, PieceType promotion) {
+    int from = Board.square(move.start());
+    int to = Board.square(move.end());
+    int special = move.sEvent() == null ? NORMAL : move.sEvent().ordinal() + 1;
+    int promotionType = special == CORONATION ? (promotion == null ? Board.QUEEN : promotion.ordinal() + 1) : 0;
+    int captured = special == EN_PASSANT ? Board.PAWN : Board.typeOf(board.get(to));
+    return encode(from, to, Board.typeOf(board.get(from)), captured, special, promotionType);
+  }
+
+  /**
+   * Builds the {@link Move} record for an encoded move. The promotion piece is
+   * not part of the record; pass it to {@code makeMove} or the coronation
+   * prompt separately.
+   */
+  public static Move toMove(int move, Piece piece) {
+    return new Move(piece, start(move), end(move), specialEvent(move));
+  }
+
+  public static SpecialEvent specialEvent(int move) {
+    int special = special(move);
+    return special == NORMAL ? null : EVENTS[special - 1];
+  }
+
+  public static PieceType promotionType(int move) {
+    return Board.pieceType(promotion(move));
+  }
+
+  public static Coords start(int move) {
+    return Board.coords(from(move));
+  }
+
+  public static Coords end(int move) {
+    return Board.coords(to(move));
+  }
+
+  public static String toString(int move) {
+    String promotion = promotion(move) == 0 ? ""
+        : String.valueOf(Character.toLowerCase(Board.pieceType(promotion(move)).getNotation()));
+    return start(move).toString() + end(move) + promotion;
+  }
+}
@@ -0,0 +1,60 @@
+package org.chess.board;
+
+/**
+ * Immutable snapshot of a {@link Board}: it copies the board once and never
+ * changes it, so any thread may read it without locking, and several searches
+ * can each take their own board from it with {@link #toBoard()}.
+ */
+public final class Position {
+  private final Board board;
+
+  private Position(Board board) {
+    this.board = board;
+  }
+
+  public static Position of(Board board) {
+    return new Position(new Board(board));
+  }
+
+  public int get(int sq) {
+    return board.get(sq);
+  }
+
+  public int kingSquare(int side) {
+    return board.kingSquare(side);
+  }
+
+  public int pieceCount() {
+    return board.pieceCount();
+  }
+
+  public int getSideToMove() {
+    return board.getSideToMove();
+  }
+
+  public int getEpSquare() {
+    return board.getEpSquare();
+  }
+
+  public int getCastlingRights() {
+    return board.getCastlingRights();
+  }
+
+  public long getKey() {
+    return board.getKey();
+  }
+
+  /**
+   * A new board holding this position, free for the caller to change.
+   */
+  public Board toBoard() {
+    return new Board(board);
+  }
+
+  /**
+   * Overwrites {@code target} with this position.
+   */
+  public void copyTo(Board target) {
+    target.copyFrom(board);
+  }
+}
@@ -0,0 +1,92 @@
+package org.chess.board;
+
+/**
+ * Legal moves, check and verdict of a {@link Board} for either side, computed
+ * on first use and kept until the board's key changes. The key is read
+ * without the side to move, so asking about the side that just moved does not
+ * evict the answers for the side to move.
+ *
+ * Repetition depends on the game history rather than the position, so it is
+ * left to the caller.
+ */
+public final class PositionCache {
+  public enum Verdict {
+    ONGOING, CHECKMATE, STALEMATE, INSUFFICIENT_MATERIAL
+  }
+
+  private final Board board;
+  private final MoveList[] moves = { new MoveList(), new MoveList() };
+  private final long[] keys = new long[2];
+  private final boolean[] valid = new boolean[2];
+  private final boolean[] inCheck = new boolean[2];
+  private final Verdict[] verdicts = new Verdict[2];
+
+  public PositionCache(Board board) {
+    this.board = board;
+  }
+
+  /**
+   * Legal moves of {@code side}, one per promotion piece. The list is owned by
+   * the cache and refilled when the position changes.
+   */
+  public MoveList legalMoves(int side) {
+    return entry(side);
+  }
+
+  public boolean isInCheck(int side) {
+    entry(side);
+    return inCheck[side];
+  }
+
+  public Verdict verdict(int side) {
+    entry(side);
+    return verdicts[side];
+  }
+
+  /**
+   * The first legal move of {@code side} from {@code from} to {@code to}, any
+   * promotion, or {@link Moves#NONE}.
+   */
+  public int find(int side, int from, int to) {
+    MoveList legal = entry(side);
+    for (int i = 0; i < legal.size(); i++) {
+      int move = legal.get(i);
+      if (Moves.from(move) == from && Moves.to(move) == to)
+        return move;
+    }
+    return Moves.NONE;
+  }
+
+  private MoveList entry(int side) {
+    long key = board.getKey() ^ (board.getSideToMove() == Board.BLACK ? Zobrist.SIDE : 0);
+    MoveList legal = moves[side];
+    if (valid[side] && keys[side] == key)
+      return legal;
+
+    MoveGenerator.generateLegal(board, side, legal);
+    int king = board.kingSquare(side);
+    inCheck[side] = king != Board.NO_SQUARE && Attacks.isSquareAttacked(board, king, side ^ 1);
+    if (legal.isEmpty())
+      verdicts[side] = inCheck[side] ? Verdict.CHECKMATE : Verdict.STALEMATE;
+    else
+      verdicts[side] = isInsufficientMaterial() ? Verdict.INSUFFICIENT_MATERIAL : Verdict.ONGOING;
+    keys[side] = key;
+    valid[side] = true;
+    return legal;
+  }
+
+  // bare kings, or a lone bishop or knight against a bare king
+  private boolean isInsufficientMaterial() {
+    int pieceCount = board.pieceCount();
+    if (pieceCount == 2)
+      return true;
+    if (pieceCount != 3)
+      return false;
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int type = Board.typeOf(board.get(sq));
+      if (type != Board.EMPTY && type != Board.KING && type != Board.BISHOP && type != Board.KNIGHT)
+        return false;
+    }
+    return true;
+  }
+}
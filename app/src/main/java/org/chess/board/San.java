@@ -0,0 +1,182 @@
+package org.chess.board;
+
+/**
+ * Standard Algebraic Notation for {@link Moves}-encoded moves: writing with
+ * the file, rank or square of the moving piece added only when another piece
+ * of the same kind could reach the same square, and reading by matching the
+ * parsed fields against the legal moves.
+ */
+public final class San {
+  // indexed by board type code
+  private static final String LETTERS = " PRNBQK";
+
+  private San() {
+  }
+
+  public static String toSan(Board board, int move) {
+    MoveList legal = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+    return toSan(board, move, legal);
+  }
+
+  /**
+   * Writes {@code move}, which must be in {@code legal}, the legal moves of
+   * the side to move on {@code board}. The board is left as it was.
+   */
+  public static String toSan(Board board, int move, MoveList legal) {
+    StringBuilder sb = new StringBuilder(8);
+    int from = Moves.from(move);
+    int to = Moves.to(move);
+    int piece = Moves.piece(move);
+    if (Moves.special(move) == Moves.CASTLE) {
+      sb.append(Board.col(to) > Board.col(from) ? "O-O" : "O-O-O");
+    } else {
+      if (piece == Board.PAWN) {
+        if (Moves.isCapture(move))
+          sb.append(file(from)).append('x');
+      } else {
+        sb.append(LETTERS.charAt(piece));
+        appendDisambiguation(sb, move, legal);
+        if (Moves.isCapture(move))
+          sb.append('x');
+      }
+      sb.append(file(to)).append(rank(to));
+      if (Moves.special(move) == Moves.CORONATION)
+        sb.append('=').append(LETTERS.charAt(Moves.promotion(move)));
+    }
+
+    board.makeMove(move);
+    int side = board.getSideToMove();
+    if (Attacks.isSquareAttacked(board, board.kingSquare(side), side ^ 1)) {
+      MoveList replies = new MoveList();
+      MoveGenerator.generateLegal(board, side, replies);
+      sb.append(replies.isEmpty() ? '#' : '+');
+    }
+    board.unmakeMove();
+    return sb.toString();
+  }
+
+  private static void appendDisambiguation(StringBuilder sb, int move, MoveList legal) {
+    int from = Moves.from(move);
+    boolean ambiguous = false;
+    boolean sameFile = false;
+    boolean sameRank = false;
+    for (int i = 0; i < legal.size(); i++) {
+      int other = legal.get(i);
+      if (Moves.piece(other) != Moves.piece(move) || Moves.to(other) != Moves.to(move) || Moves.from(other) == from)
+        continue;
+      ambiguous = true;
+      sameFile |= Board.col(Moves.from(other)) == Board.col(from);
+      sameRank |= Board.row(Moves.from(other)) == Board.row(from);
+    }
+    if (!ambiguous)
+      return;
+    if (!sameFile)
+      sb.append(file(from));
+    else if (!sameRank)
+      sb.append(rank(from));
+    else
+      sb.append(file(from)).append(rank(from));
+  }
+
+  /**
+   * Finds the move {@code san} stands for among {@code legal}, the legal moves
+   * of the side to move. Check and annotation marks are ignored, castling may
+   * be written with zeros, and the {@code =} of a promotion may be left out.
+   * Returns {@link Moves#NONE} when no legal move or more than one matches.
+   */
+  public static int parse(CharSequence san, MoveList legal) {
+    int end = san.length();
+    while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+      end--;
+    if (end < 2)
+      return Moves.NONE;
+
+    if (isCastling(san, end))
+      return findCastle(legal, end >= 5);
+
+    int start = 0;
+    int piece = Board.PAWN;
+    int type = LETTERS.indexOf(san.charAt(0));
+    if (type > Board.PAWN) {
+      piece = type;
+      start = 1;
+    }
+
+    int promotion = Board.EMPTY;
+    int last = LETTERS.indexOf(san.charAt(end - 1));
+    if (piece == Board.PAWN && last > Board.PAWN && last < Board.KING) {
+      promotion = last;
+      end -= san.charAt(end - 2) == '=' ? 2 : 1;
+    }
+    if (end - start < 2)
+      return Moves.NONE;
+    int toCol = san.charAt(end - 2) - 'a';
+    int toRow = san.charAt(end - 1) - '1';
+    if (!Board.isOnBoard(toRow, toCol))
+      return Moves.NONE;
+    int to = Board.square(toRow, toCol);
+
+    int fromCol = -1;
+    int fromRow = -1;
+    for (int i = start; i < end - 2; i++) {
+      char c = san.charAt(i);
+      if (c >= 'a' && c <= 'h')
+        fromCol = c - 'a';
+      else if (c >= '1' && c <= '8')
+        fromRow = c - '1';
+      else if (c != 'x' && c != ':' && c != '-')
+        return Moves.NONE;
+    }
+
+    int found = Moves.NONE;
+    for (int i = 0; i < legal.size(); i++) {
+      int move = legal.get(i);
+      int from = Moves.from(move);
+      if (Moves.to(move) != to || Moves.piece(move) != piece || Moves.promotion(move) != promotion)
+        continue;
+      if (fromCol >= 0 && Board.col(from) != fromCol || fromRow >= 0 && Board.row(from) != fromRow)
+        continue;
+      if (found != Moves.NONE)
+        return Moves.NONE;
+      found = move;
+    }
+    return found;
+  }
+
+  public static int parse(Board board, CharSequence san) {
+    MoveList legal = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+    return parse(san, legal);
+  }
+
+  private static boolean isCastling(CharSequence san, int end) {
+    if (end != 3 && end != 5)
+      return false;
+    char o = san.charAt(0);
+    if (o != 'O' && o != '0')
+      return false;
+    for (int i = 1; i < end; i++) {
+      if (san.charAt(i) != (i % 2 == 1 ? '-' : o))
+        return false;
+    }
+    return true;
+  }
+
+  private static int findCastle(MoveList legal, boolean queenSide) {
+    for (int i = 0; i < legal.size(); i++) {
+      int move = legal.get(i);
+      if (Moves.special(move) == Moves.CASTLE && (Board.col(Moves.to(move)) == 2) == queenSide)
+        return move;
+    }
+    return Moves.NONE;
+  }
+
+  private static char file(int sq) {
+    return (char) ('a' + Board.col(sq));
+  }
+
+  private static char rank(int sq) {
+    return (char) ('1' + Board.row(sq));
+  }
+}
@@ -0,0 +1,100 @@
+package org.chess.board;
+
+/**
+ * Zobrist keys for {@link Board}. The board keeps its key up to date in
+ * {@link Board#set(int, int)}, {@link Board#clear(int)} and the side, castling
+ * and en passant setters; {@link #compute(Board)} rebuilds it from scratch.
+ */
+public final class Zobrist {
+  public static final int WHITE_KING_SIDE = 1;
+  public static final int WHITE_QUEEN_SIDE = 2;
+  public static final int BLACK_KING_SIDE = 4;
+  public static final int BLACK_QUEEN_SIDE = 8;
+
+  static final long[] PIECES = new long[2 * 6 * Board.SQUARES];
+  static final long[] CASTLING = new long[16];
+  static final long[] EP_FILE = new long[Board.SIZE];
+  static final long SIDE;
+
+  static {
+    // fixed seed so keys are stable across runs and can be stored
+    long seed = 0x5EED_C0DE_2025L;
+    for (int i = 0; i < PIECES.length; i++)
+      PIECES[i] = seed = next(seed);
+    for (int i = 1; i < CASTLING.length; i++)
+      CASTLING[i] = seed = next(seed);
+    for (int i = 0; i < EP_FILE.length; i++)
+      EP_FILE[i] = seed = next(seed);
+    SIDE = next(seed);
+  }
+
+  private Zobrist() {
+  }
+
+  private static long next(long seed) {
+    // splitmix64
+    long z = seed + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  static long piece(int code, int sq) {
+    return PIECES[(((code & Board.TYPE_MASK) - 1) * 2 + Board.sideOf(code)) * Board.SQUARES + sq];
+  }
+
+  /**
+   * Castling rights implied by the moved flags of the kings and corner rooks.
+   */
+  public static int castlingRights(Board board) {
+    int rights = 0;
+    if (isUnmoved(board, 4, Board.KING, Board.WHITE)) {
+      if (isUnmoved(board, 7, Board.ROOK, Board.WHITE))
+        rights |= WHITE_KING_SIDE;
+      if (isUnmoved(board, 0, Board.ROOK, Board.WHITE))
+        rights |= WHITE_QUEEN_SIDE;
+    }
+    if (isUnmoved(board, 60, Board.KING, Board.BLACK)) {
+      if (isUnmoved(board, 63, Board.ROOK, Board.BLACK))
+        rights |= BLACK_KING_SIDE;
+      if (isUnmoved(board, 56, Board.ROOK, Board.BLACK))
+        rights |= BLACK_QUEEN_SIDE;
+    }
+    return rights;
+  }
+
+  private static boolean isUnmoved(Board board, int sq, int type, int side) {
+    int code = board.get(sq);
+    return Board.typeOf(code) == type && Board.sideOf(code) == side && !Board.hasMoved(code);
+  }
+
+  /**
+   * Whether an en passant square should be part of the key: only when a pawn
+   * is actually placed to capture onto it.
+   */
+  public static boolean isEpCapturable(Board board, int epSquare) {
+    if (epSquare == Board.NO_SQUARE)
+      return false;
+    // a target on the third rank is captured by black from the fourth rank
+    int capturer = Board.row(epSquare) == 2 ? Board.PAWN | Board.BLACK_FLAG : Board.PAWN;
+    int fromRow = Board.row(epSquare) == 2 ? 3 : 4;
+    int col = Board.col(epSquare);
+    return col > 0 && (board.get(Board.square(fromRow, col - 1)) & ~Board.MOVED_FLAG) == capturer
+        || col < 7 && (board.get(Board.square(fromRow, col + 1)) & ~Board.MOVED_FLAG) == capturer;
+  }
+
+  public static long compute(Board board) {
+    long key = 0;
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = board.get(sq);
+      if (code != Board.EMPTY)
+        key ^= piece(code, sq);
+    }
+    key ^= CASTLING[castlingRights(board)];
+    if (isEpCapturable(board, board.getEpSquare()))
+      key ^= EP_FILE[Board.col(board.getEpSquare())];
+    if (board.getSideToMove() == Board.BLACK)
+      key ^= SIDE;
+    return key;
+  }
+}
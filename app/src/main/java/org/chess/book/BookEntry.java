@@ -0,0 +1,23 @@
+package org.chess.book;
+
+/**
+ * One 16-byte Polyglot book record. {@code move} is in Polyglot encoding:
+ * to file, to row, from file, from row and promotion in 3-bit fields from
+ * the low end, castling written as the king taking its own rook.
+ */
+public record BookEntry(long key, int move, int weight, int learn) {
+  public int from() {
+    return (move >>> 9 & 7) * 8 + (move >>> 6 & 7);
+  }
+
+  public int to() {
+    return (move >>> 3 & 7) * 8 + (move & 7);
+  }
+
+  /**
+   * Polyglot promotion piece: 0 none, 1 knight, 2 bishop, 3 rook, 4 queen.
+   */
+  public int promotion() {
+    return move >>> 12 & 7;
+  }
+}
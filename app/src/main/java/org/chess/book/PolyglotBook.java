@@ -0,0 +1,136 @@
+package org.chess.book;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.chess.board.Board;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+
+/**
+ * Read-only Polyglot {@code .bin} opening book. The file is memory-mapped, not
+ * read onto the heap: its 16-byte big-endian records are sorted by key, so a
+ * lookup is a binary search over the mapping.
+ */
+public class PolyglotBook {
+  private static final int ENTRY_SIZE = 16;
+  // Polyglot promotion codes 1-4 as board type codes
+  private static final int[] PROMOTIONS = { Board.EMPTY, Board.KNIGHT, Board.BISHOP, Board.ROOK, Board.QUEEN };
+
+  private final MappedByteBuffer buffer;
+  private final int entryCount;
+
+  public PolyglotBook(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+        throw new IOException("Book too large to map: " + path);
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      entryCount = (int) (size / ENTRY_SIZE);
+    }
+  }
+
+  public int size() {
+    return entryCount;
+  }
+
+  public List<BookEntry> entries(Board board) {
+    return entries(PolyglotKey.of(board));
+  }
+
+  public List<BookEntry> entries(long key) {
+    ArrayList<BookEntry> entries = new ArrayList<>();
+    for (int i = firstIndex(key); i < entryCount && keyAt(i) == key; i++) {
+      int offset = i * ENTRY_SIZE;
+      entries.add(new BookEntry(key, Short.toUnsignedInt(buffer.getShort(offset + 8)),
+          Short.toUnsignedInt(buffer.getShort(offset + 10)), buffer.getInt(offset + 12)));
+    }
+    return entries;
+  }
+
+  // first record whose key is not below key, comparing keys unsigned
+  private int firstIndex(long key) {
+    int low = 0;
+    int high = entryCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (Long.compareUnsigned(keyAt(mid), key) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private long keyAt(int index) {
+    return buffer.getLong(index * ENTRY_SIZE);
+  }
+
+  /**
+   * Picks a book move for the side to move, at random in proportion to the
+   * entry weights, and returns it in {@link Moves} encoding as produced by the
+   * legal move generator. Returns {@link Moves#NONE} when the position is not
+   * in the book or no entry matches a legal move.
+   */
+  public int pickMove(Board board, Random random) {
+    List<BookEntry> entries = entries(board);
+    MoveList legal = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+
+    int[] moves = new int[entries.size()];
+    int[] weights = new int[entries.size()];
+    int total = 0;
+    int count = 0;
+    for (BookEntry entry : entries) {
+      int move = toMove(board, entry, legal);
+      if (move == Moves.NONE)
+        continue;
+      moves[count] = move;
+      // weight 0 entries are kept for analysis but never played
+      weights[count] = entry.weight();
+      total += entry.weight();
+      count++;
+    }
+    if (total == 0)
+      return Moves.NONE;
+    int pick = random.nextInt(total);
+    for (int i = 0; i < count; i++) {
+      pick -= weights[i];
+      if (pick < 0)
+        return moves[i];
+    }
+    return Moves.NONE;
+  }
+
+  /**
+   * Finds the legal move a book entry stands for, translating Polyglot's
+   * king-takes-rook castling to the king's destination square.
+   */
+  public static int toMove(Board board, BookEntry entry, MoveList legal) {
+    int from = entry.from();
+    int to = entry.to();
+    int piece = board.get(from);
+    if (Board.typeOf(piece) == Board.KING && !Board.hasMoved(piece)) {
+      int target = board.get(to);
+      if (Board.typeOf(target) == Board.ROOK && Board.sideOf(target) == Board.sideOf(piece))
+        to = Board.col(to) > Board.col(from) ? from + 2 : from - 2;
+    }
+    int promotion = PROMOTIONS[Math.min(entry.promotion(), PROMOTIONS.length - 1)];
+    for (int i = 0; i < legal.size(); i++) {
+      int move = legal.get(i);
+      if (Moves.from(move) == from && Moves.to(move) == to && Moves.promotion(move) == promotion)
+        return move;
+    }
+    return Moves.NONE;
+  }
+}
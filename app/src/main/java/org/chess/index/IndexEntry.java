@@ -0,0 +1,14 @@
+package org.chess.index;
+
+import org.chess.board.Moves;
+
+/**
+ * One 20-byte position index record: a position, by its {@link org.chess.board.Board#getKey()
+ * key}, was reached at {@code ply} of game {@code gameId} and {@code move} was
+ * played from it, in {@link Moves} encoding. The last position of a game has
+ * {@link Moves#NONE}.
+ *
+ * @param gameId the game's order in its archive, from 0
+ */
+public record IndexEntry(long key, int gameId, int ply, int move) {
+}
@@ -0,0 +1,192 @@
+package org.chess.index;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.Moves;
+import org.chess.board.San;
+
+/**
+ * Read-only index of the positions reached in a game archive, written by
+ * {@link PositionIndexBuilder}. The file is a 16-byte header followed by
+ * {@link IndexEntry} records sorted by unsigned key, then by game and ply. It
+ * is memory-mapped in segments below 2 GB, so a lookup is a binary search over
+ * the mapping and the heap never holds the archive.
+ */
+public class PositionIndex {
+  static final int MAGIC = 0x4D435049;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int ENTRY_SIZE = 20;
+  private static final int ENTRIES_PER_SEGMENT = (1 << 30) / ENTRY_SIZE;
+
+  /**
+   * How often {@code move} was played from a position.
+   */
+  public record MoveCount(int move, int games) {
+  }
+
+  private final MappedByteBuffer[] segments;
+  private final long entryCount;
+
+  public PositionIndex(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE)
+        throw new IOException("Not a position index: " + path);
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      header.order(ByteOrder.BIG_ENDIAN);
+      entryCount = header.getLong(8);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+          || size != HEADER_SIZE + entryCount * ENTRY_SIZE)
+        throw new IOException("Not a position index: " + path);
+      segments = new MappedByteBuffer[(int) ((entryCount + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT)];
+      for (int i = 0; i < segments.length; i++) {
+        long first = (long) i * ENTRIES_PER_SEGMENT;
+        long count = Math.min(ENTRIES_PER_SEGMENT, entryCount - first);
+        // the mappings stay valid after the channel is closed
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * ENTRY_SIZE,
+            count * ENTRY_SIZE);
+        segments[i].order(ByteOrder.BIG_ENDIAN);
+      }
+    }
+  }
+
+  public long size() {
+    return entryCount;
+  }
+
+  /**
+   * Number of times a position was reached across the archive.
+   */
+  public long count(long key) {
+    return firstIndex(key, true) - firstIndex(key, false);
+  }
+
+  public List<IndexEntry> entries(Board board, int limit) {
+    return entries(board.getKey(), limit);
+  }
+
+  /**
+   * The first {@code limit} records of a position, in game order.
+   */
+  public List<IndexEntry> entries(long key, int limit) {
+    ArrayList<IndexEntry> entries = new ArrayList<>();
+    for (long i = firstIndex(key, false); i < entryCount && keyAt(i) == key && entries.size() < limit; i++)
+      entries.add(entryAt(i));
+    return entries;
+  }
+
+  /**
+   * The moves played from a position with the number of games each, most
+   * played first. Games that ended in the position are not counted.
+   */
+  public List<MoveCount> nextMoves(Board board) {
+    long key = board.getKey();
+    long first = firstIndex(key, false);
+    int[] played = new int[(int) Math.min(firstIndex(key, true) - first, Integer.MAX_VALUE - 8)];
+    int count = 0;
+    for (int i = 0; i < played.length; i++) {
+      int move = moveAt(first + i);
+      if (move != Moves.NONE)
+        played[count++] = move;
+    }
+    // equal moves end up next to each other, no boxing needed to count them
+    Arrays.sort(played, 0, count);
+    ArrayList<MoveCount> moves = new ArrayList<>();
+    for (int i = 0, j; i < count; i = j) {
+      for (j = i + 1; j < count && played[j] == played[i]; j++) {
+      }
+      moves.add(new MoveCount(played[i], j - i));
+    }
+    moves.sort((a, b) -> Integer.compare(b.games(), a.games()));
+    return moves;
+  }
+
+  // first record whose key is not below key, or above it when after is set,
+  // comparing keys unsigned
+  private long firstIndex(long key, boolean after) {
+    long low = 0;
+    long high = entryCount;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      int cmp = Long.compareUnsigned(keyAt(mid), key);
+      if (cmp < 0 || after && cmp == 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private long keyAt(long index) {
+    return segment(index).getLong(offset(index));
+  }
+
+  private int moveAt(long index) {
+    return segment(index).getInt(offset(index) + 16);
+  }
+
+  private IndexEntry entryAt(long index) {
+    MappedByteBuffer segment = segment(index);
+    int offset = offset(index);
+    return new IndexEntry(segment.getLong(offset), segment.getInt(offset + 8), segment.getInt(offset + 12),
+        segment.getInt(offset + 16));
+  }
+
+  private MappedByteBuffer segment(long index) {
+    return segments[(int) (index / ENTRIES_PER_SEGMENT)];
+  }
+
+  private static int offset(long index) {
+    return (int) (index % ENTRIES_PER_SEGMENT) * ENTRY_SIZE;
+  }
+
+  /**
+   * Command line entry: {@code build <pgn> <index> [--run-size n]} indexes an
+   * archive and {@code probe <index> <fen>} lists the moves played from a
+   * position.
+   */
+  public static void run(String[] args) {
+    if (args.length < 3 || !(args[0].equals("build") || args[0].equals("probe"))) {
+      System.out.println("usage: --index build <pgn> <index> [--run-size n] | --index probe <index> <fen>");
+      return;
+    }
+    try {
+      if (args[0].equals("build")) {
+        int runSize = PositionIndexBuilder.DEFAULT_RUN_SIZE;
+        for (int i = 3; i + 1 < args.length; i += 2) {
+          if (args[i].equals("--run-size"))
+            runSize = Integer.parseInt(args[i + 1]);
+        }
+        long start = System.nanoTime();
+        PositionIndexBuilder.Stats stats = new PositionIndexBuilder(runSize).build(Path.of(args[1]),
+            Path.of(args[2]));
+        System.out.printf("%,d games, %,d positions in %.2f s (%d runs, %,d games skipped)%n", stats.games(),
+            stats.entries(), (System.nanoTime() - start) / 1e9, stats.runs(), stats.errors());
+        return;
+      }
+      PositionIndex index = new PositionIndex(Path.of(args[1]));
+      Board board = new Board();
+      Fen.load(board, String.join(" ", Arrays.asList(args).subList(2, args.length)));
+      long start = System.nanoTime();
+      long reached = index.count(board.getKey());
+      List<MoveCount> moves = index.nextMoves(board);
+      double millis = (System.nanoTime() - start) / 1e6;
+      System.out.printf("reached %,d times (%.3f ms)%n", reached, millis);
+      for (MoveCount move : moves)
+        System.out.printf("  %-8s %,d%n", San.toSan(board, move.move()), move.games());
+    } catch (IOException e) {
+      System.err.println("Position index error: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package org.chess.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.Moves;
+import org.chess.pgn.PgnGame;
+import org.chess.pgn.PgnImport;
+import org.chess.pgn.PgnReader;
+
+/**
+ * Builds a {@link PositionIndex} from a PGN archive with an external sort.
+ *
+ * Games are replayed in file order and every position they pass through is
+ * buffered as a record. When the buffer fills it is radix sorted by key and
+ * written to a temporary run file; the runs are then merged into the index.
+ * Memory use is set by the run size alone, whatever the size of the archive.
+ */
+public class PositionIndexBuilder {
+  public static final int DEFAULT_RUN_SIZE = 1 << 21;
+
+  /**
+   * @param errors games skipped because a move could not be replayed
+   */
+  public record Stats(long games, long entries, int runs, long errors) {
+  }
+
+  private final int runSize;
+  private long[] keys;
+  private int[] gameIds;
+  private int[] plies;
+  private int[] moves;
+  private int size;
+
+  private final ArrayList<Path> runs = new ArrayList<>();
+  private final ArrayList<Long> runSizes = new ArrayList<>();
+
+  /**
+   * @param runSize records sorted in memory at a time; each takes 40 bytes
+   *                while sorting
+   */
+  public PositionIndexBuilder(int runSize) {
+    if (runSize < 1)
+      throw new IllegalArgumentException("Run size must be positive");
+    this.runSize = runSize;
+  }
+
+  /**
+   * Indexes every game of {@code pgn} into {@code index}. Game ids are the
+   * games' order in the file, counting skipped games.
+   */
+  public Stats build(Path pgn, Path index) throws IOException {
+    keys = new long[runSize];
+    gameIds = new int[runSize];
+    plies = new int[runSize];
+    moves = new int[runSize];
+    size = 0;
+    Path tempDir = Files.createTempDirectory(index.toAbsolutePath().getParent(), "index-runs");
+    long games = 0;
+    long errors = 0;
+    long entries = 0;
+    try {
+      Board board = new Board();
+      try (PgnReader reader = new PgnReader(
+          new InputStreamReader(Files.newInputStream(pgn), StandardCharsets.UTF_8))) {
+        int gameId = 0;
+        for (PgnGame game = reader.next(); game != null; game = reader.next(), gameId++) {
+          int[] played;
+          try {
+            played = PgnImport.replay(game);
+          } catch (RuntimeException e) {
+            errors++;
+            continue;
+          }
+          // loading also empties the undo stack, which would otherwise grow with the archive
+          Fen.load(board, game.startFen());
+          for (int ply = 0; ply <= played.length; ply++) {
+            int move = ply < played.length ? played[ply] : Moves.NONE;
+            add(tempDir, board.getKey(), gameId, ply, move);
+            if (move != Moves.NONE)
+              board.makeMove(move);
+          }
+          entries += played.length + 1;
+          games++;
+        }
+      }
+      if (!runs.isEmpty())
+        flushRun(tempDir);
+      merge(index, entries);
+      return new Stats(games, entries, runs.size(), errors);
+    } finally {
+      for (Path run : runs)
+        Files.deleteIfExists(run);
+      runs.clear();
+      runSizes.clear();
+      Files.deleteIfExists(tempDir);
+      keys = null;
+      gameIds = null;
+      plies = null;
+      moves = null;
+    }
+  }
+
+  private void add(Path tempDir, long key, int gameId, int ply, int move) throws IOException {
+    keys[size] = key;
+    gameIds[size] = gameId;
+    plies[size] = ply;
+    moves[size] = move;
+    if (++size == runSize)
+      flushRun(tempDir);
+  }
+
+  private void flushRun(Path tempDir) throws IOException {
+    if (size == 0)
+      return;
+    sortRun();
+    Path run = Files.createTempFile(tempDir, "run", ".bin");
+    runs.add(run);
+    runSizes.add((long) size);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+      for (int i = 0; i < size; i++)
+        writeEntry(out, keys[i], gameIds[i], plies[i], moves[i]);
+    }
+    size = 0;
+  }
+
+  /**
+   * Least significant digit radix sort of the buffered records on their
+   * unsigned keys, one byte per pass. It is stable, so records of a key stay
+   * in game and ply order. Passes where every key has the same byte are
+   * skipped.
+   */
+  private void sortRun() {
+    long[] keysTo = new long[size];
+    int[] gameIdsTo = new int[size];
+    int[] pliesTo = new int[size];
+    int[] movesTo = new int[size];
+    long[] keysFrom = keys;
+    int[] gameIdsFrom = gameIds;
+    int[] pliesFrom = plies;
+    int[] movesFrom = moves;
+    int[] counts = new int[257];
+    for (int shift = 0; shift < 64; shift += 8) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < size; i++)
+        counts[(int) (keysFrom[i] >>> shift & 0xFF) + 1]++;
+      if (counts[(int) (keysFrom[0] >>> shift & 0xFF) + 1] == size)
+        continue;
+      for (int b = 0; b < 256; b++)
+        counts[b + 1] += counts[b];
+      for (int i = 0; i < size; i++) {
+        int to = counts[(int) (keysFrom[i] >>> shift & 0xFF)]++;
+        keysTo[to] = keysFrom[i];
+        gameIdsTo[to] = gameIdsFrom[i];
+        pliesTo[to] = pliesFrom[i];
+        movesTo[to] = movesFrom[i];
+      }
+      long[] keysSwap = keysFrom;
+      keysFrom = keysTo;
+      keysTo = keysSwap;
+      int[] swap = gameIdsFrom;
+      gameIdsFrom = gameIdsTo;
+      gameIdsTo = swap;
+      swap = pliesFrom;
+      pliesFrom = pliesTo;
+      pliesTo = swap;
+      swap = movesFrom;
+      movesFrom = movesTo;
+      movesTo = swap;
+    }
+    if (keysFrom != keys) {
+      System.arraycopy(keysFrom, 0, keys, 0, size);
+      System.arraycopy(gameIdsFrom, 0, gameIds, 0, size);
+      System.arraycopy(pliesFrom, 0, plies, 0, size);
+      System.arraycopy(movesFrom, 0, moves, 0, size);
+    }
+  }
+
+  // the next record of a run file, compared by key and then by run, which
+  // keeps the game order of the runs
+  private static final class RunCursor {
+    final DataInputStream in;
+    final int run;
+    long remaining;
+    long key;
+    int gameId;
+    int ply;
+    int move;
+
+    RunCursor(Path file, int run, long count) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+      this.run = run;
+      remaining = count;
+    }
+
+    boolean advance() throws IOException {
+      if (remaining == 0)
+        return false;
+      remaining--;
+      key = in.readLong();
+      gameId = in.readInt();
+      ply = in.readInt();
+      move = in.readInt();
+      return true;
+    }
+  }
+
+  private void merge(Path index, long entries) throws IOException {
+    Path partial = index.resolveSibling(index.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+      out.writeInt(PositionIndex.MAGIC);
+      out.writeInt(PositionIndex.VERSION);
+      out.writeLong(entries);
+      if (runs.isEmpty()) {
+        // everything fitted in one buffer: no run files needed
+        sortRun();
+        for (int i = 0; i < size; i++)
+          writeEntry(out, keys[i], gameIds[i], plies[i], moves[i]);
+      } else {
+        mergeRuns(out);
+      }
+    }
+    Files.move(partial, index, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void mergeRuns(DataOutputStream out) throws IOException {
+    PriorityQueue<RunCursor> queue = new PriorityQueue<>((a, b) -> {
+      int cmp = Long.compareUnsigned(a.key, b.key);
+      return cmp != 0 ? cmp : Integer.compare(a.run, b.run);
+    });
+    ArrayList<RunCursor> cursors = new ArrayList<>(runs.size());
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        RunCursor cursor = new RunCursor(runs.get(i), i, runSizes.get(i));
+        cursors.add(cursor);
+        if (cursor.advance())
+          queue.add(cursor);
+      }
+      while (!queue.isEmpty()) {
+        RunCursor cursor = queue.poll();
+        writeEntry(out, cursor.key, cursor.gameId, cursor.ply, cursor.move);
+        if (cursor.advance())
+          queue.add(cursor);
+      }
+    } catch (EOFException e) {
+      throw new IOException("Truncated run file", e);
+    } finally {
+      for (RunCursor cursor : cursors)
+        cursor.in.close();
+    }
+  }
+
+  private static void writeEntry(DataOutputStream out, long key, int gameId, int ply, int move) throws IOException {
+    out.writeLong(key);
+    out.writeInt(gameId);
+    out.writeInt(ply);
+    out.writeInt(move);
+  }
+}
@@ -0,0 +1,174 @@
+package org.chess.perft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.chess.Game;
+import org.chess.board.Fen;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+
+/**
+ * Counts the leaf nodes of the legal move tree of a position. The generator
+ * emits one move per promotion piece, so counts match the published reference
+ * numbers. Each ply reuses its own {@link MoveList}, so the tree walk does not
+ * allocate.
+ */
+public class Perft {
+  public record RootMove(int move, long nodes) {
+    @Override
+    public String toString() {
+      return Moves.toString(move);
+    }
+  }
+
+  public record Division(List<RootMove> moves, long nodes, long nanos) {
+    public long nodesPerSecond() {
+      return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+  }
+
+  private Perft() {
+  }
+
+  public static long perft(Game game, int depth) {
+    return perft(game, depth, null);
+  }
+
+  public static long perft(Game game, int depth, PerftCache cache) {
+    return perft(game, depth, cache, newPlies(depth));
+  }
+
+  private static MoveList[] newPlies(int depth) {
+    MoveList[] plies = new MoveList[Math.max(depth, 1)];
+    for (int i = 0; i < plies.length; i++)
+      plies[i] = new MoveList();
+    return plies;
+  }
+
+  // plies[depth - 1] holds the moves generated at this depth
+  private static long perft(Game game, int depth, PerftCache cache, MoveList[] plies) {
+    if (depth == 0)
+      return 1;
+    MoveList moves = plies[depth - 1];
+    game.generateLegalMoves(moves);
+    if (depth == 1)
+      return moves.size();
+
+    long key = 0;
+    if (cache != null) {
+      key = game.getPositionKey();
+      long cached = cache.probe(key, depth);
+      if (cached >= 0)
+        return cached;
+    }
+
+    long nodes = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      game.makeMove(moves.get(i));
+      nodes += perft(game, depth - 1, cache, plies);
+      game.unmakeMove();
+    }
+
+    if (cache != null)
+      cache.store(key, depth, nodes);
+    return nodes;
+  }
+
+  /**
+   * Runs perft below every root move, spreading the root moves over a
+   * fork-join pool. Each task searches its own copy of the game.
+   */
+  public static Division divide(Game game, int depth, int threads, PerftCache cache) {
+    if (depth < 1)
+      throw new IllegalArgumentException("Depth must be at least 1");
+    long start = System.nanoTime();
+    MoveList moves = new MoveList();
+    game.generateLegalMoves(moves);
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      ArrayList<ForkJoinTask<RootMove>> tasks = new ArrayList<>(moves.size());
+      for (int i = 0; i < moves.size(); i++) {
+        int move = moves.get(i);
+        tasks.add(pool.submit(() -> {
+          Game copy = new Game(game);
+          copy.makeMove(move);
+          return new RootMove(move, perft(copy, depth - 1, cache));
+        }));
+      }
+
+      ArrayList<RootMove> results = new ArrayList<>(tasks.size());
+      long nodes = 0;
+      for (ForkJoinTask<RootMove> task : tasks) {
+        RootMove result = task.join();
+        results.add(result);
+        nodes += result.nodes();
+      }
+      return new Division(results, nodes, System.nanoTime() - start);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Command line entry point:
+   *
+   * <pre>
+   * --perft &lt;depth&gt; [fen] [--threads n] [--cache mb]
+   * --perft suite [max depth] [--threads n] [--cache mb]
+   * </pre>
+   *
+   * @return false if a reference count did not match
+   */
+  public static boolean run(String[] args) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    int cacheMb = 0;
+    ArrayList<String> positional = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--threads" -> threads = Integer.parseInt(args[++i]);
+        case "--cache" -> cacheMb = Integer.parseInt(args[++i]);
+        default -> positional.add(args[i]);
+      }
+    }
+    if (positional.isEmpty()) {
+      System.out.println("usage: --perft <depth> [fen] | --perft suite [max depth] [--threads n] [--cache mb]");
+      return false;
+    }
+
+    Game game = new Game();
+    if (positional.get(0).equals("suite")) {
+      int maxDepth = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 3;
+      boolean passed = true;
+      for (PerftPosition position : PerftPosition.REFERENCE) {
+        game.loadFen(position.fen());
+        for (int depth = 1; depth <= Math.min(maxDepth, position.maxDepth()); depth++) {
+          PerftCache cache = cacheMb > 0 ? new PerftCache(cacheMb) : null;
+          Division division = divide(game, depth, threads, cache);
+          long expected = position.nodes()[depth - 1];
+          boolean ok = division.nodes() == expected;
+          passed &= ok;
+          System.out.printf("%-12s depth %d  %12d  %s  %,d nps%n", position.name(), depth, division.nodes(),
+              ok ? "ok" : "FAIL (expected " + expected + ")", division.nodesPerSecond());
+        }
+      }
+      return passed;
+    }
+
+    int depth = Integer.parseInt(positional.get(0));
+    String fen = positional.size() > 1 ? String.join(" ", positional.subList(1, positional.size()))
+        : Fen.START_POSITION;
+    game.loadFen(fen);
+    Division division = divide(game, depth, threads, cacheMb > 0 ? new PerftCache(cacheMb) : null);
+    for (RootMove move : division.moves())
+      System.out.println(move + ": " + move.nodes());
+    System.out.println();
+    System.out.println("Nodes: " + division.nodes());
+    System.out.printf("Time: %.3f s%n", division.nanos() / 1e9);
+    System.out.printf("NPS: %,d%n", division.nodesPerSecond());
+    return true;
+  }
+}
@@ -0,0 +1,42 @@
+package org.chess.perft;
+
+/**
+ * Fixed-size table of subtree node counts shared by the perft workers.
+ *
+ * Each slot stores the position key (mixed with the depth) XORed with the
+ * count, so a slot torn by two threads writing at once fails verification
+ * instead of returning a wrong count.
+ */
+public class PerftCache {
+  private static final int BYTES_PER_ENTRY = 16;
+
+  private final long[] keys;
+  private final long[] counts;
+  private final int mask;
+
+  public PerftCache(int megabytes) {
+    long entries = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY));
+    int size = (int) Math.min(entries, 1 << 30);
+    keys = new long[size];
+    counts = new long[size];
+    mask = size - 1;
+  }
+
+  public long probe(long key, int depth) {
+    long k = mix(key, depth);
+    int index = (int) k & mask;
+    long count = counts[index];
+    return (keys[index] ^ count) == k && count != 0 ? count : -1;
+  }
+
+  public void store(long key, int depth, long count) {
+    long k = mix(key, depth);
+    int index = (int) k & mask;
+    counts[index] = count;
+    keys[index] = k ^ count;
+  }
+
+  private static long mix(long key, int depth) {
+    return key ^ (depth * 0x9E3779B97F4A7C15L);
+  }
+}
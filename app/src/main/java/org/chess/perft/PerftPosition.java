@@ -0,0 +1,29 @@
+package org.chess.perft;
+
+import java.util.List;
+
+import org.chess.board.Fen;
+
+/**
+ * A perft reference position with its published node counts, indexed by
+ * depth minus one.
+ */
+public record PerftPosition(String name, String fen, long[] nodes) {
+  public static final List<PerftPosition> REFERENCE = List.of(
+      new PerftPosition("start", Fen.START_POSITION,
+          new long[] { 20, 400, 8902, 197281, 4865609, 119060324 }),
+      new PerftPosition("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+          new long[] { 48, 2039, 97862, 4085603, 193690690 }),
+      new PerftPosition("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+          new long[] { 14, 191, 2812, 43238, 674624, 11030083 }),
+      new PerftPosition("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+          new long[] { 6, 264, 9467, 422333, 15833292 }),
+      new PerftPosition("talkchess", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+          new long[] { 44, 1486, 62379, 2103487, 89941194 }),
+      new PerftPosition("middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+          new long[] { 46, 2079, 89890, 3894594, 164075551 }));
+
+  public int maxDepth() {
+    return nodes.length;
+  }
+}
@@ -0,0 +1,27 @@
+package org.chess.pgn;
+
+import java.util.List;
+import java.util.Map;
+
+import org.chess.board.Fen;
+
+/**
+ * One game of a PGN file: its tag pairs in file order, its main line moves in
+ * SAN and its result token. Comments, variations and annotation glyphs are
+ * not kept.
+ */
+public record PgnGame(Map<String, String> tags, List<String> moves, String result) {
+  public static final String UNFINISHED = "*";
+
+  public String tag(String name) {
+    return tags.get(name);
+  }
+
+  /**
+   * The FEN the game starts from: its FEN tag, or the standard start.
+   */
+  public String startFen() {
+    String fen = tags.get("FEN");
+    return fen == null ? Fen.START_POSITION : fen;
+  }
+}
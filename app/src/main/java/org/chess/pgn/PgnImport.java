@@ -0,0 +1,144 @@
+package org.chess.pgn;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.chess.board.San;
+
+/**
+ * Imports PGN files: one thread reads games off the file while worker threads
+ * replay their moves on boards of their own. The queue between them is
+ * bounded, so memory stays flat however large the file is.
+ */
+public final class PgnImport {
+  private static final int QUEUE_CAPACITY = 1024;
+  // tells a worker there are no more games
+  private static final PgnGame END = new PgnGame(Map.of(), List.of(), PgnGame.UNFINISHED);
+
+  /**
+   * @param nanos wall time of the whole import
+   */
+  public record Stats(long games, long plies, long errors, long nanos) {
+  }
+
+  /**
+   * A replayed game with its moves in {@link Moves} encoding.
+   */
+  public record Imported(PgnGame game, int[] moves) {
+  }
+
+  private PgnImport() {
+  }
+
+  /**
+   * Plays the moves of {@code game} from its start position and returns them
+   * in {@link Moves} encoding. Throws IllegalArgumentException naming the
+   * first move that is not legal or not valid SAN.
+   */
+  public static int[] replay(PgnGame game) {
+    Board board = new Board();
+    Fen.load(board, game.startFen());
+    MoveList legal = new MoveList();
+    int[] moves = new int[game.moves().size()];
+    for (int i = 0; i < moves.length; i++) {
+      String san = game.moves().get(i);
+      legal.clear();
+      MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+      int move = San.parse(san, legal);
+      if (move == Moves.NONE)
+        throw new IllegalArgumentException("Illegal or ambiguous move " + san + " at ply " + (i + 1));
+      board.makeMove(move);
+      moves[i] = move;
+    }
+    return moves;
+  }
+
+  /**
+   * Replays every game of {@code file} on {@code threads} workers, handing
+   * each game and its moves to {@code sink}. Games that fail to replay are
+   * counted as errors and skipped.
+   */
+  public static Stats importAll(Path file, int threads, Consumer<Imported> sink)
+      throws IOException, InterruptedException {
+    BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    LongAdder games = new LongAdder();
+    LongAdder plies = new LongAdder();
+    LongAdder errors = new LongAdder();
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(() -> {
+        try {
+          for (PgnGame game = queue.take(); game != END; game = queue.take()) {
+            try {
+              int[] moves = replay(game);
+              sink.accept(new Imported(game, moves));
+              games.increment();
+              plies.add(moves.length);
+            } catch (RuntimeException e) {
+              errors.increment();
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, "pgn-import-" + i);
+      workers[i].start();
+    }
+
+    long start = System.nanoTime();
+    try (PgnReader reader = new PgnReader(
+        new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+      for (PgnGame game = reader.next(); game != null; game = reader.next())
+        queue.put(game);
+    } finally {
+      for (int i = 0; i < threads; i++)
+        queue.put(END);
+      for (Thread worker : workers)
+        worker.join();
+    }
+    return new Stats(games.sum(), plies.sum(), errors.sum(), System.nanoTime() - start);
+  }
+
+  /**
+   * Command line entry point: {@code --pgn <file> [--threads n]}.
+   */
+  public static void run(String[] args) {
+    if (args.length == 0) {
+      System.err.println("Usage: --pgn <file> [--threads n]");
+      return;
+    }
+    Path file = Path.of(args[0]);
+    int threads = Runtime.getRuntime().availableProcessors();
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals("--threads"))
+        threads = Integer.parseInt(args[++i]);
+    }
+    try {
+      Stats stats = importAll(file, threads, imported -> {
+      });
+      double seconds = stats.nanos() / 1e9;
+      System.out.printf("%,d games, %,d plies in %.2f s: %,.0f games/s, %,.0f plies/s%n", stats.games(),
+          stats.plies(), seconds, stats.games() / seconds, stats.plies() / seconds);
+      if (stats.errors() > 0)
+        System.out.printf("%,d games could not be replayed%n", stats.errors());
+    } catch (IOException e) {
+      System.err.println("Cannot read " + file + ": " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
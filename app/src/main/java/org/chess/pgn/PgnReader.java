@@ -0,0 +1,202 @@
+package org.chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads PGN one game at a time from a stream of any length. Only the game
+ * being read is held in memory: comments, variations, annotation glyphs and
+ * escape lines are skipped as they are read, and move numbers are dropped.
+ * Tokens are read straight from an internal buffer, with no line splitting
+ * or regular expressions.
+ */
+public class PgnReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Reader in;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean lineStart = true;
+  private final StringBuilder token = new StringBuilder(16);
+
+  public PgnReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads the next game, or returns null at the end of the stream. A game
+   * cut off without a result token gets {@link PgnGame#UNFINISHED}.
+   */
+  public PgnGame next() throws IOException {
+    LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    ArrayList<String> moves = new ArrayList<>();
+    String result = null;
+    int c;
+    while (result == null && (c = peek()) != -1) {
+      if (Character.isWhitespace(c) || c == '\uFEFF') {
+        read();
+      } else if (c == '%' && lineStart) {
+        skipLine();
+      } else if (c == '[') {
+        // a tag after movetext belongs to the next game
+        if (!moves.isEmpty())
+          break;
+        read();
+        readTag(tags);
+      } else if (c == '{') {
+        skipComment();
+      } else if (c == ';') {
+        skipLine();
+      } else if (c == '(') {
+        skipVariation();
+      } else if (c == ')' || c == '}' || c == ']') {
+        read();
+      } else {
+        readSymbol();
+        if (c == '$')
+          continue;
+        String symbol = token.toString();
+        if (isResult(symbol)) {
+          result = symbol;
+        } else {
+          String move = stripMoveNumber(symbol);
+          if (!move.isEmpty())
+            moves.add(move);
+        }
+      }
+    }
+    if (tags.isEmpty() && moves.isEmpty() && result == null)
+      return null;
+    return new PgnGame(tags, moves, result == null ? PgnGame.UNFINISHED : result);
+  }
+
+  private static boolean isResult(String symbol) {
+    return symbol.equals("1-0") || symbol.equals("0-1") || symbol.equals("1/2-1/2") || symbol.equals("*");
+  }
+
+  // "12." and "12..." carry no move, while "12.e4" carries one; "!" and "?"
+  // suffixes are annotations, not part of the move
+  private static String stripMoveNumber(String symbol) {
+    int start = 0;
+    if (!symbol.isEmpty() && symbol.charAt(0) >= '0' && symbol.charAt(0) <= '9')
+      start = symbol.lastIndexOf('.') + 1;
+    int end = symbol.length();
+    while (end > start && (symbol.charAt(end - 1) == '!' || symbol.charAt(end - 1) == '?'))
+      end--;
+    return start == 0 && end == symbol.length() ? symbol : symbol.substring(start, end);
+  }
+
+  private void readTag(LinkedHashMap<String, String> tags) throws IOException {
+    skipSpaces();
+    token.setLength(0);
+    int c;
+    while ((c = peek()) != -1 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+      token.append((char) c);
+      read();
+    }
+    String name = token.toString();
+    skipSpaces();
+    token.setLength(0);
+    if (peek() == '"') {
+      read();
+      while ((c = read()) != -1 && c != '"') {
+        if (c == '\\') {
+          c = read();
+          if (c == -1)
+            break;
+        }
+        token.append((char) c);
+      }
+    }
+    while ((c = read()) != -1 && c != ']' && c != '\n') {
+      // tolerate junk after the value
+    }
+    if (!name.isEmpty())
+      tags.put(name, token.toString());
+  }
+
+  private void readSymbol() throws IOException {
+    token.setLength(0);
+    int c;
+    while ((c = peek()) != -1 && !Character.isWhitespace(c) && "{}()[];".indexOf(c) < 0) {
+      token.append((char) c);
+      read();
+      // a move number ends at its dots, even when the move follows unspaced
+      if (c == '.' && peek() != '.' && token.charAt(0) >= '0' && token.charAt(0) <= '9')
+        break;
+    }
+  }
+
+  private void skipComment() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c != -1 && c != '}');
+  }
+
+  private void skipVariation() throws IOException {
+    int depth = 0;
+    int c;
+    while ((c = peek()) != -1) {
+      if (c == '{') {
+        skipComment();
+        continue;
+      }
+      if (c == ';') {
+        skipLine();
+        continue;
+      }
+      read();
+      if (c == '(')
+        depth++;
+      else if (c == ')' && --depth == 0)
+        return;
+    }
+  }
+
+  private void skipLine() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c != -1 && c != '\n');
+  }
+
+  private void skipSpaces() throws IOException {
+    int c;
+    while ((c = peek()) != -1 && c != '\n' && Character.isWhitespace(c))
+      read();
+  }
+
+  private int peek() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    return buffer[position];
+  }
+
+  private int read() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    char c = buffer[position++];
+    // a byte order mark leaves the reader at the start of the first line
+    lineStart = c == '\n' || lineStart && c == '\uFEFF';
+    return c;
+  }
+
+  private boolean fill() throws IOException {
+    int n = in.read(buffer, 0, buffer.length);
+    if (n <= 0)
+      return false;
+    position = 0;
+    limit = n;
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
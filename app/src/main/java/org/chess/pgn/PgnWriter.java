@@ -0,0 +1,87 @@
+package org.chess.pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+
+/**
+ * Writes games in PGN export format: the seven tag roster first, in its
+ * fixed order and with {@code ?} for unknown values, then the other tags,
+ * a blank line, and the movetext wrapped before 80 columns and ended by the
+ * result.
+ */
+public final class PgnWriter {
+  private static final List<String> SEVEN_TAG_ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black",
+      "Result");
+  private static final int MAX_LINE = 79;
+
+  private PgnWriter() {
+  }
+
+  public static String write(PgnGame game) {
+    StringBuilder sb = new StringBuilder(512);
+    try {
+      write(sb, game);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sb.toString();
+  }
+
+  public static void write(Appendable out, PgnGame game) throws IOException {
+    Map<String, String> tags = game.tags();
+    for (String name : SEVEN_TAG_ROSTER) {
+      String value = name.equals("Result") ? game.result() : tags.get(name);
+      writeTag(out, name, value == null ? (name.equals("Date") ? "????.??.??" : "?") : value);
+    }
+    for (Map.Entry<String, String> tag : tags.entrySet()) {
+      if (!SEVEN_TAG_ROSTER.contains(tag.getKey()))
+        writeTag(out, tag.getKey(), tag.getValue());
+    }
+    out.append('\n');
+
+    Board board = new Board();
+    Fen.Counters counters = Fen.load(board, game.startFen());
+    int moveNumber = counters.fullmoveNumber();
+    boolean white = board.getSideToMove() == Board.WHITE;
+    StringBuilder line = new StringBuilder(MAX_LINE + 1);
+    for (int i = 0; i < game.moves().size(); i++) {
+      if (white)
+        append(out, line, moveNumber + ".");
+      else if (i == 0)
+        append(out, line, moveNumber + "...");
+      append(out, line, game.moves().get(i));
+      if (!white)
+        moveNumber++;
+      white = !white;
+    }
+    append(out, line, game.result());
+    out.append(line).append("\n\n");
+  }
+
+  private static void writeTag(Appendable out, String name, String value) throws IOException {
+    out.append('[').append(name).append(" \"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\')
+        out.append('\\');
+      out.append(c);
+    }
+    out.append("\"]\n");
+  }
+
+  // adds a token to the current line, flushing the line first if it would not fit
+  private static void append(Appendable out, StringBuilder line, String token) throws IOException {
+    if (line.length() > 0 && line.length() + 1 + token.length() > MAX_LINE) {
+      out.append(line).append('\n');
+      line.setLength(0);
+    }
+    if (line.length() > 0)
+      line.append(' ');
+    line.append(token);
+  }
+}
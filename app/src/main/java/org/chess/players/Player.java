@@ -21,6 +21,17 @@ public class Player {
     type = playerType;
   }
 
+  /**
+   * Creates a player with a fixed id, 1 for white and 2 for black, outside the
+   * two player limit, so that many headless games can run side by side.
+   */
+  public Player(PlayerType playerType, int id) {
+    if (id != 1 && id != 2)
+      throw new IllegalArgumentException("Player id must be 1 or 2: " + id);
+    this.id = id;
+    type = playerType;
+  }
+
   public PlayerType getType() {
     return type;
   }
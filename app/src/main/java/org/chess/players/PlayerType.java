@@ -1,3 +1,3 @@
 package org.chess.players;
 
-public enum PlayerType { Human, RandomAI }
+public enum PlayerType { Human, RandomAI, SearchAI }
@@ -0,0 +1,208 @@
+package org.chess.tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.chess.board.Board;
+
+/**
+ * Layout of one material signature such as {@code KQvK} or {@code KRvKN}:
+ * the pieces in slot order (white king, black king, then the other white and
+ * black pieces, strongest first) and the index of a placement.
+ *
+ * A position's index is {@code side * 64^n + sq[0] * 64^(n-1) + ... + sq[n-1]},
+ * every piece on every square, so a table holds {@code 2 * 64^n} one-byte
+ * entries. Entries are {@link #ILLEGAL}, {@link #DRAW}, or the distance to
+ * mate in plies plus one: an odd distance is a win for the side to move, an
+ * even one a loss.
+ */
+public final class Table {
+  public static final int DRAW = 0;
+  public static final int ILLEGAL = 0xFF;
+  public static final int MAX_PLIES = 253;
+
+  private static final String ORDER = "QRBNP";
+  private static final int[] TYPES = { Board.QUEEN, Board.ROOK, Board.BISHOP, Board.KNIGHT, Board.PAWN };
+
+  final String name;
+  // piece codes by slot, without the moved flag
+  final int[] codes;
+  final int size;
+
+  private Table(String name, int[] codes) {
+    this.name = name;
+    this.codes = codes;
+    this.size = 2 << 6 * codes.length;
+  }
+
+  /**
+   * Parses a signature like {@code KRvKB}; white must be listed first.
+   */
+  public static Table of(String signature) {
+    String[] sides = signature.toUpperCase().split("V");
+    if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K"))
+      throw new IllegalArgumentException("Invalid material signature: " + signature);
+    ArrayList<Integer> codes = new ArrayList<>();
+    codes.add(Board.KING);
+    codes.add(Board.KING | Board.BLACK_FLAG);
+    for (int side = 0; side < 2; side++) {
+      for (char c : sort(sides[side].substring(1)).toCharArray()) {
+        int i = ORDER.indexOf(c);
+        if (i < 0)
+          throw new IllegalArgumentException("Invalid material signature: " + signature);
+        codes.add(TYPES[i] | (side == 1 ? Board.BLACK_FLAG : 0));
+      }
+    }
+    if (codes.size() > 4)
+      throw new IllegalArgumentException("Only 3 and 4 piece tables are supported: " + signature);
+    return new Table(nameOf(sides[0].substring(1), sides[1].substring(1)),
+        codes.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  private static String sort(String pieces) {
+    char[] chars = pieces.toCharArray();
+    Integer[] order = new Integer[chars.length];
+    for (int i = 0; i < chars.length; i++)
+      order[i] = ORDER.indexOf(chars[i]);
+    Arrays.sort(order, (a, b) -> Integer.compare(a < 0 ? 99 : a, b < 0 ? 99 : b));
+    StringBuilder sb = new StringBuilder();
+    for (int i : order)
+      sb.append(i < 0 ? '?' : ORDER.charAt(i));
+    return sb.toString();
+  }
+
+  static String nameOf(String white, String black) {
+    return "K" + sort(white) + "vK" + sort(black);
+  }
+
+  /**
+   * Name of the table holding this material, which lists the side with more
+   * pieces, or with the stronger pieces, first.
+   */
+  static String canonicalName(String white, String black) {
+    String w = sort(white);
+    String b = sort(black);
+    int compare = Integer.compare(b.length(), w.length());
+    for (int i = 0; compare == 0 && i < w.length(); i++)
+      compare = Integer.compare(ORDER.indexOf(w.charAt(i)), ORDER.indexOf(b.charAt(i)));
+    return compare <= 0 ? nameOf(w, b) : nameOf(b, w);
+  }
+
+  /**
+   * Signature of the pieces on a board, white first, or null if it has more
+   * than four pieces or a side without a king.
+   */
+  static String signatureOf(Board board, boolean flip) {
+    if (board.pieceCount() > 4)
+      return null;
+    StringBuilder white = new StringBuilder();
+    StringBuilder black = new StringBuilder();
+    int kings = 0;
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = board.get(sq);
+      if (code == Board.EMPTY)
+        continue;
+      int type = Board.typeOf(code);
+      if (type == Board.KING) {
+        kings++;
+        continue;
+      }
+      boolean isWhite = Board.sideOf(code) == Board.WHITE ^ flip;
+      (isWhite ? white : black).append(ORDER.charAt(indexOfType(type)));
+    }
+    return kings == 2 ? nameOf(white.toString(), black.toString()) : null;
+  }
+
+  private static int indexOfType(int type) {
+    for (int i = 0; i < TYPES.length; i++) {
+      if (TYPES[i] == type)
+        return i;
+    }
+    throw new IllegalArgumentException("Not a table piece: " + type);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int pieceCount() {
+    return codes.length;
+  }
+
+  /**
+   * Index of a board holding exactly this table's material. With
+   * {@code flip} the board is read with colours swapped and ranks mirrored,
+   * for positions where black has the listed white material.
+   */
+  int indexOf(Board board, boolean flip) {
+    int[] squares = new int[codes.length];
+    Arrays.fill(squares, -1);
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int code = board.get(sq);
+      if (code == Board.EMPTY)
+        continue;
+      int piece = code & (Board.TYPE_MASK | Board.BLACK_FLAG);
+      int square = sq;
+      if (flip) {
+        piece ^= Board.BLACK_FLAG;
+        square ^= 56;
+      }
+      for (int slot = 0; slot < codes.length; slot++) {
+        if (codes[slot] == piece && squares[slot] < 0) {
+          squares[slot] = square;
+          break;
+        }
+      }
+    }
+    int side = board.getSideToMove() ^ (flip ? 1 : 0);
+    return index(side, squares);
+  }
+
+  int index(int side, int[] squares) {
+    int index = side;
+    for (int sq : squares)
+      index = index << 6 | sq;
+    return index;
+  }
+
+  static int sideOf(int index, int pieces) {
+    return index >>> 6 * pieces;
+  }
+
+  static int squareOf(int index, int slot, int pieces) {
+    return index >>> 6 * (pieces - 1 - slot) & 63;
+  }
+
+  /**
+   * Sets up {@code board} with the placement of {@code index}. Pawns count as
+   * unmoved on their starting rank and every other piece as moved, so no
+   * castling is possible.
+   */
+  void setUp(Board board, int index) {
+    board.clearAll();
+    for (int slot = 0; slot < codes.length; slot++) {
+      int sq = squareOf(index, slot, codes.length);
+      int code = codes[slot];
+      boolean onStartRank = Board.row(sq) == (Board.sideOf(code) == Board.WHITE ? 1 : 6);
+      if (Board.typeOf(code) != Board.PAWN || !onStartRank)
+        code |= Board.MOVED_FLAG;
+      board.set(sq, code);
+    }
+    board.setSideToMove(sideOf(index, codes.length));
+  }
+
+  public static boolean isWin(int value) {
+    return value != DRAW && value != ILLEGAL && (value - 1) % 2 == 1;
+  }
+
+  public static boolean isLoss(int value) {
+    return value != DRAW && value != ILLEGAL && (value - 1) % 2 == 0;
+  }
+
+  /**
+   * Plies to mate of a won or lost entry.
+   */
+  public static int plies(int value) {
+    return value - 1;
+  }
+}
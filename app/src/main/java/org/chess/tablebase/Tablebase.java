@@ -0,0 +1,285 @@
+package org.chess.tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.chess.board.Zobrist;
+
+/**
+ * Distance-to-mate endgame tables for up to four pieces, kings included.
+ *
+ * Each table is generated once by {@link TablebaseGenerator} and written to
+ * its own {@code .mctb} file: a 16-byte header followed by one byte per
+ * {@link Table} index. Opened tables are memory-mapped, so probing reads the
+ * page cache and the heap only holds the table layouts.
+ */
+public class Tablebase {
+  public static final int NOT_FOUND = -1;
+  public static final String EXTENSION = ".mctb";
+  public static final List<String> THREE_PIECE = List.of("KQvK", "KRvK", "KBvK", "KNvK", "KPvK");
+
+  private static final int MAGIC = 0x4D435442;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final String PROMOTIONS = "QRBN";
+
+  private record Mapped(Table table, MappedByteBuffer data) {
+    int value(int index) {
+      return data.get(HEADER_SIZE + index) & 0xFF;
+    }
+  }
+
+  private final Map<String, Mapped> tables = new HashMap<>();
+  private int maxPieces;
+
+  private Tablebase() {
+  }
+
+  /**
+   * Maps every table file in {@code dir}. A missing directory gives an empty
+   * tablebase.
+   */
+  public static Tablebase open(Path dir) throws IOException {
+    Tablebase tablebase = new Tablebase();
+    if (!Files.isDirectory(dir))
+      return tablebase;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+      for (Path file : files)
+        tablebase.add(file);
+    }
+    return tablebase;
+  }
+
+  private void add(Path file) throws IOException {
+    String fileName = file.getFileName().toString();
+    Table table;
+    try {
+      table = Table.of(fileName.substring(0, fileName.length() - EXTENSION.length()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Not a table file: " + file, e);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_SIZE + (long) table.size)
+        throw new IOException("Truncated table: " + file);
+      MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      data.order(ByteOrder.BIG_ENDIAN);
+      if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getInt(8) != table.pieceCount())
+        throw new IOException("Not a table file: " + file);
+      tables.put(table.name(), new Mapped(table, data));
+      maxPieces = Math.max(maxPieces, table.pieceCount());
+    }
+  }
+
+  /**
+   * Most pieces of any loaded table; positions with more are never found.
+   */
+  public int maxPieces() {
+    return maxPieces;
+  }
+
+  public Set<String> tableNames() {
+    return tables.keySet();
+  }
+
+  /**
+   * The table value of a position for the side to move, see {@link Table},
+   * or {@link #NOT_FOUND} when no table covers it. Positions with castling
+   * rights or a capturable en passant square are never found.
+   */
+  public int probe(Board board) {
+    if (board.pieceCount() == 2)
+      return Table.DRAW;
+    if (board.pieceCount() > maxPieces || board.getCastlingRights() != 0
+        || Zobrist.isEpCapturable(board, board.getEpSquare()))
+      return NOT_FOUND;
+    for (int i = 0; i < 2; i++) {
+      boolean flip = i == 1;
+      String name = Table.signatureOf(board, flip);
+      if (name == null)
+        return NOT_FOUND;
+      Mapped mapped = tables.get(name);
+      if (mapped != null)
+        return mapped.value(mapped.table.indexOf(board, flip));
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * The move keeping the table result: the fastest mate when winning, a
+   * drawing move when drawn, and the longest resistance when losing. Returns
+   * {@link Moves#NONE} when the position is not in the tablebase.
+   */
+  public int bestMove(Board board) {
+    int value = probe(board);
+    if (value == NOT_FOUND || value == Table.ILLEGAL)
+      return Moves.NONE;
+    MoveList moves = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+    Board copy = new Board(board);
+    int best = Moves.NONE;
+    int bestPlies = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      copy.makeMove(move);
+      int child = probe(copy);
+      copy.unmakeMove();
+      if (child == NOT_FOUND)
+        continue;
+      if (Table.isWin(value)) {
+        if (Table.isLoss(child) && (best == Moves.NONE || Table.plies(child) < bestPlies)) {
+          best = move;
+          bestPlies = Table.plies(child);
+        }
+      } else if (Table.isLoss(value)) {
+        if (Table.isWin(child) && (best == Moves.NONE || Table.plies(child) > bestPlies)) {
+          best = move;
+          bestPlies = Table.plies(child);
+        }
+      } else if (child == Table.DRAW) {
+        return move;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Generates the tables for {@code signatures} and every smaller table they
+   * resolve into, skipping those already in {@code dir}, and returns the
+   * tablebase of the whole directory.
+   */
+  public static Tablebase generate(Path dir, List<String> signatures, PrintStream log) throws IOException {
+    Files.createDirectories(dir);
+    Tablebase tablebase = open(dir);
+    for (String signature : signatures) {
+      Table table = Table.of(signature);
+      String[] sides = table.name().split("v");
+      tablebase.generate(dir, Table.canonicalName(sides[0].substring(1), sides[1].substring(1)), log);
+    }
+    return tablebase;
+  }
+
+  private void generate(Path dir, String name, PrintStream log) throws IOException {
+    if (tables.containsKey(name))
+      return;
+    String[] sides = name.split("v");
+    for (String child : childrenOf(sides[0].substring(1), sides[1].substring(1)))
+      generate(dir, child, log);
+
+    Table table = Table.of(name);
+    long start = System.nanoTime();
+    byte[] values = new TablebaseGenerator(table, this).generate();
+    Path file = dir.resolve(name + EXTENSION);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(table.pieceCount());
+      out.writeInt(0);
+      out.write(values);
+    }
+    add(file);
+    if (log != null)
+      log.printf("%-8s %,12d entries  longest mate %3d plies  %.1f s%n", name, values.length, longestMate(values),
+          (System.nanoTime() - start) / 1e9);
+  }
+
+  /**
+   * Tables reached from a material balance by a capture or a promotion.
+   */
+  private static Set<String> childrenOf(String white, String black) {
+    Set<String> children = new LinkedHashSet<>();
+    for (int side = 0; side < 2; side++) {
+      String own = side == 0 ? white : black;
+      String other = side == 0 ? black : white;
+      for (int i = 0; i < other.length(); i++)
+        addChild(children, own, without(other, i), side);
+      for (int i = 0; i < own.length(); i++) {
+        if (own.charAt(i) != 'P')
+          continue;
+        for (char promotion : PROMOTIONS.toCharArray()) {
+          String promoted = without(own, i) + promotion;
+          addChild(children, promoted, other, side);
+          for (int j = 0; j < other.length(); j++)
+            addChild(children, promoted, without(other, j), side);
+        }
+      }
+    }
+    return children;
+  }
+
+  private static void addChild(Set<String> children, String own, String other, int side) {
+    if (own.isEmpty() && other.isEmpty())
+      return;
+    children.add(side == 0 ? Table.canonicalName(own, other) : Table.canonicalName(other, own));
+  }
+
+  private static String without(String pieces, int i) {
+    return pieces.substring(0, i) + pieces.substring(i + 1);
+  }
+
+  // counted for the mating side to move, as in "mate in n"
+  private static int longestMate(byte[] values) {
+    int longest = 0;
+    for (byte value : values) {
+      int v = value & 0xFF;
+      if (Table.isWin(v))
+        longest = Math.max(longest, Table.plies(v));
+    }
+    return longest;
+  }
+
+  /**
+   * Command line entry: {@code generate <dir> [signatures]} builds tables,
+   * all three-piece ones by default, and {@code probe <dir> <fen>} looks a
+   * position up.
+   */
+  public static void run(String[] args) {
+    if (args.length < 2 || !(args[0].equals("generate") || args[0].equals("probe"))) {
+      System.out.println("usage: --tablebase generate <dir> [KQvK KRvKN ...] | --tablebase probe <dir> <fen>");
+      return;
+    }
+    Path dir = Path.of(args[1]);
+    try {
+      if (args[0].equals("generate")) {
+        List<String> signatures = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : THREE_PIECE;
+        generate(dir, signatures, System.out);
+        return;
+      }
+      Tablebase tablebase = open(dir);
+      Board board = new Board();
+      Fen.load(board, String.join(" ", Arrays.asList(args).subList(2, args.length)));
+      int value = tablebase.probe(board);
+      if (value == NOT_FOUND) {
+        System.out.println("not found");
+      } else if (value == Table.DRAW) {
+        System.out.println("draw");
+      } else {
+        System.out.println((Table.isWin(value) ? "win" : "loss") + " in " + Table.plies(value) + " plies");
+      }
+      int move = tablebase.bestMove(board);
+      if (move != Moves.NONE)
+        System.out.println("best move " + Moves.toString(move));
+    } catch (IOException e) {
+      System.err.println("Tablebase error: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package org.chess.tablebase;
+
+import org.chess.board.Attacks;
+import org.chess.board.Board;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+
+/**
+ * Builds a distance-to-mate {@link Table} by retrograde analysis.
+ *
+ * A first pass visits every placement once: it marks illegal ones, scores
+ * mates and stalemates, resolves captures and promotions by probing the
+ * smaller tables they lead to, and counts the moves that stay in the table.
+ * Then, one ply level at a time, every position resolved at that level is
+ * walked backwards through its unmoves: a lost position makes each
+ * predecessor a win one ply longer, and a won one takes away one of the
+ * predecessor's remaining escapes, which is lost once it has none left.
+ * Whatever is unresolved at the end is a draw.
+ *
+ * Tables ignore castling and en passant.
+ */
+final class TablebaseGenerator {
+  private static final int WIN_EXIT = 1;
+  private static final int DRAW_EXIT = 2;
+  private static final int LOSS_PENDING = 4;
+
+  private final Table table;
+  private final Tablebase children;
+  private final int pieces;
+  private final byte[] values;
+  // in-table moves not yet known to lose
+  private final byte[] remaining;
+  // with WIN_EXIT the plies of the fastest winning exit, otherwise the plies
+  // of the slowest losing one, which a loss cannot be faster than
+  private final byte[] pending;
+  private final byte[] flags;
+  // the deepest level a pending result resolves at
+  private int maxPending;
+
+  TablebaseGenerator(Table table, Tablebase children) {
+    this.table = table;
+    this.children = children;
+    pieces = table.pieceCount();
+    values = new byte[table.size];
+    remaining = new byte[table.size];
+    pending = new byte[table.size];
+    flags = new byte[table.size];
+  }
+
+  byte[] generate() {
+    initialize();
+    for (int level = 0; level < Table.MAX_PLIES; level++) {
+      boolean resolved = false;
+      for (int index = 0; index < values.length; index++) {
+        if (values[index] == 0 && (flags[index] & (WIN_EXIT | LOSS_PENDING)) != 0
+            && (pending[index] & 0xFF) == level)
+          values[index] = (byte) (level + 1);
+      }
+      for (int index = 0; index < values.length; index++) {
+        if ((values[index] & 0xFF) == level + 1) {
+          resolved = true;
+          unmove(index, level);
+        }
+      }
+      if (!resolved && level >= maxPending)
+        break;
+    }
+    return values;
+  }
+
+  private void initialize() {
+    Board board = new Board();
+    MoveList moves = new MoveList();
+    for (int index = 0; index < values.length; index++) {
+      if (!isPlacementValid(index)) {
+        values[index] = (byte) Table.ILLEGAL;
+        continue;
+      }
+      table.setUp(board, index);
+      int side = board.getSideToMove();
+      int enemyKing = board.kingSquare(side ^ 1);
+      if (Attacks.isSquareAttacked(board, enemyKing, side)) {
+        values[index] = (byte) Table.ILLEGAL;
+        continue;
+      }
+
+      MoveGenerator.generateLegal(board, side, moves);
+      if (moves.isEmpty()) {
+        int king = board.kingSquare(side);
+        if (Attacks.isSquareAttacked(board, king, side ^ 1))
+          values[index] = 1;
+        else
+          flags[index] = DRAW_EXIT;
+        continue;
+      }
+
+      int count = 0;
+      int fastestWin = Integer.MAX_VALUE;
+      int slowestLoss = 0;
+      boolean drawExit = false;
+      for (int i = 0; i < moves.size(); i++) {
+        int move = moves.get(i);
+        if (!Moves.isCapture(move) && Moves.special(move) != Moves.CORONATION) {
+          count++;
+          continue;
+        }
+        board.makeMove(move);
+        int value = children.probe(board);
+        board.unmakeMove();
+        if (value == Tablebase.NOT_FOUND)
+          throw new IllegalStateException(table.name() + " needs a missing table after " + Moves.toString(move));
+        if (Table.isLoss(value))
+          fastestWin = Math.min(fastestWin, Table.plies(value) + 1);
+        else if (Table.isWin(value))
+          slowestLoss = Math.max(slowestLoss, Table.plies(value) + 1);
+        else
+          drawExit = true;
+      }
+
+      remaining[index] = (byte) count;
+      if (fastestWin != Integer.MAX_VALUE) {
+        flags[index] = WIN_EXIT;
+        pending[index] = (byte) fastestWin;
+        maxPending = Math.max(maxPending, fastestWin);
+      } else {
+        pending[index] = (byte) slowestLoss;
+        if (drawExit) {
+          flags[index] = DRAW_EXIT;
+        } else if (count == 0) {
+          flags[index] = LOSS_PENDING;
+          maxPending = Math.max(maxPending, slowestLoss);
+        }
+      }
+    }
+  }
+
+  private boolean isPlacementValid(int index) {
+    long occupied = 0;
+    for (int slot = 0; slot < pieces; slot++) {
+      int sq = Table.squareOf(index, slot, pieces);
+      if ((occupied & 1L << sq) != 0)
+        return false;
+      occupied |= 1L << sq;
+      if (Board.typeOf(table.codes[slot]) == Board.PAWN && (Board.row(sq) == 0 || Board.row(sq) == 7))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Walks back from a position resolved at {@code level} to every position
+   * one in-table move before it.
+   */
+  private void unmove(int index, int level) {
+    int side = Table.sideOf(index, pieces);
+    int mover = side ^ 1;
+    long occupied = 0;
+    for (int slot = 0; slot < pieces; slot++)
+      occupied |= 1L << Table.squareOf(index, slot, pieces);
+
+    int flipped = index ^ 1 << 6 * pieces;
+    for (int slot = 0; slot < pieces; slot++) {
+      int code = table.codes[slot];
+      if (Board.sideOf(code) != mover)
+        continue;
+      int sq = Table.squareOf(index, slot, pieces);
+      int shift = 6 * (pieces - 1 - slot);
+      int base = flipped & ~(63 << shift);
+      switch (Board.typeOf(code)) {
+        case Board.PAWN -> {
+          int back = mover == Board.WHITE ? -8 : 8;
+          int from = sq + back;
+          if (Board.row(from) == 0 || Board.row(from) == 7 || (occupied & 1L << from) != 0)
+            break;
+          update(base | from << shift, level);
+          int doubleRow = mover == Board.WHITE ? 3 : 4;
+          int start = from + back;
+          if (Board.row(sq) == doubleRow && (occupied & 1L << start) == 0)
+            update(base | start << shift, level);
+        }
+        case Board.KNIGHT -> steps(Attacks.KNIGHT[sq], occupied, base, shift, level);
+        case Board.KING -> steps(Attacks.KING[sq], occupied, base, shift, level);
+        case Board.BISHOP -> slides(sq, 4, 8, occupied, base, shift, level);
+        case Board.ROOK -> slides(sq, 0, 4, occupied, base, shift, level);
+        case Board.QUEEN -> slides(sq, 0, 8, occupied, base, shift, level);
+        default -> {
+        }
+      }
+    }
+  }
+
+  private void steps(int[] targets, long occupied, int base, int shift, int level) {
+    for (int from : targets) {
+      if ((occupied & 1L << from) == 0)
+        update(base | from << shift, level);
+    }
+  }
+
+  private void slides(int sq, int firstDirection, int endDirection, long occupied, int base, int shift,
+      int level) {
+    for (int d = firstDirection; d < endDirection; d++) {
+      for (int from : Attacks.RAYS[d][sq]) {
+        if ((occupied & 1L << from) != 0)
+          break;
+        update(base | from << shift, level);
+      }
+    }
+  }
+
+  private void update(int predecessor, int level) {
+    if (values[predecessor] != 0)
+      return;
+    if (level % 2 == 0) {
+      // the move leads to a lost position, so the predecessor wins
+      values[predecessor] = (byte) (level + 2);
+      return;
+    }
+    if ((flags[predecessor] & (WIN_EXIT | DRAW_EXIT)) != 0 || --remaining[predecessor] > 0)
+      return;
+    int plies = Math.max(level + 1, pending[predecessor] & 0xFF);
+    if (plies == level + 1) {
+      values[predecessor] = (byte) (level + 2);
+    } else {
+      flags[predecessor] |= LOSS_PENDING;
+      pending[predecessor] = (byte) plies;
+      maxPending = Math.max(maxPending, plies);
+    }
+  }
+}
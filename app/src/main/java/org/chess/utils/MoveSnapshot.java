@@ -2,4 +2,7 @@ package org.chess.utils;
 
 import org.chess.pieces.Piece;
 
-public record MoveSnapshot(Move move, Piece captured) {}
+/**
+ * @param epSquare the en passant square before the move, restored by undo
+ */
+public record MoveSnapshot(Move move, Piece captured, int epSquare) {}
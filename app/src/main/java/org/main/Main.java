@@ -1,14 +1,72 @@
 package org.main;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 import javax.swing.SwingUtilities;
 
+import org.ai.SearchBench;
+import org.ai.SelfPlay;
+import org.ai.UciEngine;
 import org.chess.Game;
+import org.chess.book.PolyglotBook;
+import org.chess.index.PositionIndex;
+import org.chess.perft.Perft;
+import org.chess.pgn.PgnImport;
 import org.chess.players.PlayerType;
+import org.chess.tablebase.Tablebase;
 import org.ui.BoardFrame;
 
 public class Main {
   public static void main(String[] args) {
-    Game game = new Game(PlayerType.RandomAI, PlayerType.RandomAI);
+    if (args.length > 0 && args[0].equals("--uci")) {
+      UciEngine.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--perft")) {
+      boolean passed = Perft.run(Arrays.copyOfRange(args, 1, args.length));
+      System.exit(passed ? 0 : 1);
+    }
+    if (args.length > 0 && args[0].equals("--search-bench")) {
+      SearchBench.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--self-play")) {
+      SelfPlay.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--tablebase")) {
+      Tablebase.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--pgn")) {
+      PgnImport.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--index")) {
+      PositionIndex.run(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    PlayerType white = PlayerType.RandomAI;
+    PlayerType black = PlayerType.RandomAI;
+    PolyglotBook book = null;
+    Tablebase tablebase = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      try {
+        switch (args[i]) {
+          case "--white" -> white = playerType(args[i + 1], white);
+          case "--black" -> black = playerType(args[i + 1], black);
+          case "--book" -> book = new PolyglotBook(Path.of(args[i + 1]));
+          case "--tablebases" -> tablebase = Tablebase.open(Path.of(args[i + 1]));
+          default -> System.err.println("Unknown option " + args[i]);
+        }
+      } catch (IOException e) {
+        System.err.println("Cannot open " + args[i + 1] + ": " + e.getMessage());
+      }
+    }
+    // the book and tables must be in place before White's first decision
+    Game game = new Game(white, black, book, tablebase);
     SwingUtilities.invokeLater(() -> {
       BoardFrame window = new BoardFrame(game.getBoardSnapshot(), game, game);
 
@@ -33,4 +91,14 @@ public class Main {
       window.repaint();
     });
   }
+
+  // Human, RandomAI or SearchAI, in any case
+  private static PlayerType playerType(String name, PlayerType fallback) {
+    for (PlayerType type : PlayerType.values()) {
+      if (type.name().equalsIgnoreCase(name))
+        return type;
+    }
+    System.err.println("Unknown player " + name + ", expected one of " + Arrays.toString(PlayerType.values()));
+    return fallback;
+  }
 }
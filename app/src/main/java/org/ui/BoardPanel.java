@@ -10,19 +10,48 @@ import org.ui.utils.BoardListener;
 import org.ui.utils.ImageLoader;
 
 import java.awt.BasicStroke;
+import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-
+import java.util.ArrayList;
+
+/**
+ * Draws the board in layers: the squares are rendered once into a background
+ * image, and the piece layer is that background with the pieces drawn on,
+ * kept opaque so painting it is a plain copy. The piece layer is only redrawn
+ * on the squares whose piece changed. A new snapshot repaints just the
+ * squares that changed, including those gaining or losing a selection or
+ * move marker, so a move costs a few squares instead of the whole board.
+ */
 public class BoardPanel extends JPanel {
+  private static final Color LIGHT = new Color(240, 217, 181);
+  private static final Color DARK = new Color(181, 136, 99);
+  private static final Color SELECTION = new Color(252, 232, 3);
+  private static final Color CAPTURE = new Color(255, 0, 0);
+  private static final Color QUIET = new Color(0, 255, 0, 180);
+  private static final BasicStroke SELECTION_STROKE = new BasicStroke(4);
+  private static final BasicStroke CAPTURE_STROKE = new BasicStroke(3);
+  // how far the selection stroke reaches past its square
+  private static final int STROKE_OVERFLOW = 2;
+
   private BoardSnapshot board;
   private BoardListener listener;
 
+  // piece on each square, row * 8 + col, as drawn on the piece layer; null
+  // for an empty square
+  private final PieceSnapshot[] squares = new PieceSnapshot[64];
+  // squares holding the selection or a move marker, one bit per square
+  private long markedSquares;
+  private BufferedImage background;
+  private BufferedImage pieceLayer;
+  private int layerCellSize;
+
   public BoardPanel(BoardSnapshot boardSnapshot, BoardListener listener) {
-    board = boardSnapshot;
     this.listener = listener;
+    setBoard(boardSnapshot);
 
     addMouseListener(new MouseAdapter() {
       @Override
@@ -37,10 +66,38 @@ public class BoardPanel extends JPanel {
     addKeyListener(null);
   }
 
+  /**
+   * Shows a new snapshot, updating the piece layer and repainting only the
+   * squares that differ from the previous one.
+   */
   public void setBoard(BoardSnapshot boardSnapshot) {
     board = boardSnapshot;
-    revalidate();
-    repaint();
+    PieceSnapshot[] next = new PieceSnapshot[64];
+    ArrayList<PieceSnapshot> pieces = board.getPieces();
+    if (pieces != null) {
+      for (int i = 0; i < pieces.size(); i++) {
+        PieceSnapshot piece = pieces.get(i);
+        next[square(piece.coords())] = piece;
+      }
+    }
+
+    long dirty = markedSquares;
+    for (int sq = 0; sq < 64; sq++) {
+      if (!samePiece(squares[sq], next[sq])) {
+        squares[sq] = next[sq];
+        drawPiece(sq);
+        dirty |= 1L << sq;
+      }
+    }
+    markedSquares = markedSquares(board);
+    dirty |= markedSquares;
+
+    int cellSize = getWidth() / 8;
+    for (long bits = dirty; bits != 0; bits &= bits - 1) {
+      int sq = Long.numberOfTrailingZeros(bits);
+      repaint(col(sq) * cellSize - STROKE_OVERFLOW, (7 - row(sq)) * cellSize - STROKE_OVERFLOW,
+          cellSize + 2 * STROKE_OVERFLOW, cellSize + 2 * STROKE_OVERFLOW);
+    }
   }
 
   public void setListener(BoardListener boardListener) {
@@ -53,59 +110,103 @@ public class BoardPanel extends JPanel {
     Graphics2D g2d = (Graphics2D) g;
 
     int cellSize = getWidth() / 8;
+    if (cellSize <= 0)
+      return;
+    if (cellSize != layerCellSize)
+      renderLayers(cellSize);
+    // the clip limits the copy to the squares being repainted
+    g2d.drawImage(pieceLayer, 0, 0, null);
+
+    Coords selected = board.getSelectedCell();
+    if (selected != null) {
+      g2d.setStroke(SELECTION_STROKE);
+      g2d.setColor(SELECTION);
+      g2d.drawRect(selected.col() * cellSize, (7 - selected.row()) * cellSize, cellSize, cellSize);
+    }
 
-    for (int row = 0; row < 8; row++) {
-      for (int col = 0; col < 8; col++) {
-
-        int x = col * cellSize;
-        int y = (7 - row) * cellSize;
-
-        g2d.setColor((row + col) % 2 == 0
-            ? new java.awt.Color(240, 217, 181)
-            : new java.awt.Color(181, 136, 99));
-        g2d.fillRect(x, y, cellSize, cellSize);
+    ArrayList<Move> legalMoves = board.getLegalMoves();
+    if (legalMoves == null)
+      return;
+    int padding = cellSize / 6;
+    int size = cellSize - 2 * padding;
+    for (int i = 0; i < legalMoves.size(); i++) {
+      Move move = legalMoves.get(i);
+      int x = move.end().col() * cellSize;
+      int y = (7 - move.end().row()) * cellSize;
+      PieceSnapshot target = squares[square(move.end())];
+
+      if (target != null && target.player() != move.piece().getOwner().id) {
+        g2d.setColor(CAPTURE);
+        g2d.setStroke(CAPTURE_STROKE);
+        g2d.drawLine(x + padding, y + padding, x + padding + size, y + padding + size);
+        g2d.drawLine(x + padding + size, y + padding, x + padding, y + padding + size);
+      } else {
+        g2d.setColor(QUIET);
+        g2d.fillOval(x + padding, y + padding, size, size);
       }
     }
+  }
 
-    if (board.getSelectedCell() != null) {
-      g2d.setStroke(new BasicStroke(4));
-      g2d.setColor(new java.awt.Color(252, 232, 3));
-      g2d.drawRect(board.getSelectedCell().col() * cellSize,
-          (7 - board.getSelectedCell().row()) * cellSize, cellSize, cellSize);
+  // draws the squares once and every piece, for a new cell size
+  private void renderLayers(int cellSize) {
+    layerCellSize = cellSize;
+    background = new BufferedImage(cellSize * 8, cellSize * 8, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = background.createGraphics();
+    for (int sq = 0; sq < 64; sq++) {
+      g.setColor((row(sq) + col(sq)) % 2 == 0 ? LIGHT : DARK);
+      g.fillRect(col(sq) * cellSize, (7 - row(sq)) * cellSize, cellSize, cellSize);
     }
+    g.dispose();
+    pieceLayer = new BufferedImage(cellSize * 8, cellSize * 8, BufferedImage.TYPE_INT_RGB);
+    for (int sq = 0; sq < 64; sq++)
+      drawPiece(sq);
+  }
 
-    if (board.getPieces() != null) {
-      for (PieceSnapshot piece : board.getPieces()) {
-        int x = piece.coords().col() * cellSize;
-        int y = (7 - piece.coords().row()) * cellSize;
-
-        BufferedImage img = ImageLoader.getPieceImage(piece.type().name(), piece.player(), cellSize);
-        if (img != null) {
-          g2d.drawImage(img, x, y, cellSize, cellSize, null);
-        }
-      }
+  // redraws one square of the piece layer, once the layer exists
+  private void drawPiece(int sq) {
+    if (pieceLayer == null)
+      return;
+    int cellSize = layerCellSize;
+    int x = col(sq) * cellSize;
+    int y = (7 - row(sq)) * cellSize;
+    Graphics2D g = pieceLayer.createGraphics();
+    g.drawImage(background, x, y, x + cellSize, y + cellSize, x, y, x + cellSize, y + cellSize, null);
+    PieceSnapshot piece = squares[sq];
+    if (piece != null) {
+      BufferedImage img = ImageLoader.getPieceImage(piece.type().name(), piece.player(), cellSize);
+      if (img != null)
+        g.drawImage(img, x, y, cellSize, cellSize, null);
     }
+    g.dispose();
+  }
 
-    if (board.getLegalMoves() != null) {
-      for (Move move : board.getLegalMoves()) {
-        int x = move.end().col() * cellSize;
-        int y = (7 - move.end().row()) * cellSize;
-        int padding = cellSize / 6;
-        int size = cellSize - 2 * padding;
-
-        boolean isCapture = board.getPieces().stream()
-            .anyMatch(p -> p.coords().equals(move.end()) && p.player() != move.piece().getOwner().id);
-
-        if (isCapture) {
-          g2d.setColor(new java.awt.Color(255, 0, 0));
-          g2d.setStroke(new BasicStroke(3));
-          g2d.drawLine(x + padding, y + padding, x + padding + size, y + padding + size);
-          g2d.drawLine(x + padding + size, y + padding, x + padding, y + padding + size);
-        } else {
-          g2d.setColor(new java.awt.Color(0, 255, 0, 180));
-          g2d.fillOval(x + padding, y + padding, size, size);
-        }
-      }
+  private static long markedSquares(BoardSnapshot board) {
+    long marked = 0;
+    if (board.getSelectedCell() != null)
+      marked |= 1L << square(board.getSelectedCell());
+    ArrayList<Move> legalMoves = board.getLegalMoves();
+    if (legalMoves != null) {
+      for (int i = 0; i < legalMoves.size(); i++)
+        marked |= 1L << square(legalMoves.get(i).end());
     }
+    return marked;
+  }
+
+  private static boolean samePiece(PieceSnapshot a, PieceSnapshot b) {
+    if (a == null || b == null)
+      return a == b;
+    return a.type() == b.type() && a.player() == b.player();
+  }
+
+  private static int square(Coords coords) {
+    return coords.row() * 8 + coords.col();
+  }
+
+  private static int row(int sq) {
+    return sq >> 3;
+  }
+
+  private static int col(int sq) {
+    return sq & 7;
   }
 }
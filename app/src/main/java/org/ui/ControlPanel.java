@@ -75,15 +75,9 @@ public class ControlPanel extends JPanel {
     copyToClipboardButton.setMinimumSize(new Dimension(width / 4, width / 4));
     copyToClipboardButton.setMaximumSize(new Dimension(width / 4, width / 4));
     copyToClipboardButton.addActionListener(e -> {
-      StringBuilder sb = new StringBuilder();
-      for (int i = 0; i < moveHistory.size(); i++) {
-        if (i % 2 == 0) {
-          sb.append(i / 2 + 1).append(". ").append(moveHistory.get(i));
-        } else {
-          sb.append(" - ").append(moveHistory.get(i)).append("\n");
-        }
-      }
-      StringSelection selection = new StringSelection(sb.toString());
+      if (listener == null)
+        return;
+      StringSelection selection = new StringSelection(listener.toPgn());
       Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, null);
     });
 
@@ -95,22 +89,16 @@ public class ControlPanel extends JPanel {
     saveButton.setMinimumSize(new Dimension(width / 4, width / 4));
     saveButton.setMaximumSize(new Dimension(width / 4, width / 4));
     saveButton.addActionListener(e -> {
+      if (listener == null)
+        return;
       JFileChooser fileChooser = new JFileChooser();
-      fileChooser.setDialogTitle("Save Move History");
-      fileChooser.setSelectedFile(new java.io.File("move_history.txt"));
+      fileChooser.setDialogTitle("Save Game");
+      fileChooser.setSelectedFile(new java.io.File("game.pgn"));
       int userSelection = fileChooser.showSaveDialog(this);
       if (userSelection == JFileChooser.APPROVE_OPTION) {
         java.io.File fileToSave = fileChooser.getSelectedFile();
-        try (java.io.FileWriter writer = new java.io.FileWriter(fileToSave)) {
-          for (int i = 0; i < moveHistory.size(); i++) {
-            if (i % 2 == 0) {
-              writer.write((i / 2 + 1) + ". " + moveHistory.get(i));
-            } else {
-              writer.write(" - " + moveHistory.get(i) + "\n");
-            }
-          }
-          if (moveHistory.size() % 2 != 0)
-            writer.write("\n");
+        try (java.io.FileWriter writer = new java.io.FileWriter(fileToSave, java.nio.charset.StandardCharsets.UTF_8)) {
+          writer.write(listener.toPgn());
         } catch (Exception ex) {
           ex.printStackTrace();
         }
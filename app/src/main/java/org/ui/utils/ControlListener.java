@@ -6,4 +6,5 @@ public interface ControlListener {
   public void onMove(Move move, boolean isCheck, boolean isCheckmate, boolean isStalemate);
   public void onUndo();
   public void onReset();
+  public String toPgn();
 }
@@ -0,0 +1,61 @@
+package org.ai;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.San;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Each exchange is checked at its exact value: at least that much, and not
+ * one centipawn more.
+ */
+class StaticExchangeTest {
+  private static void assertExchange(String fen, String san, int value) {
+    Board board = new Board();
+    Fen.load(board, fen);
+    int move = San.parse(board, san);
+    assertTrue(StaticExchange.isAtLeast(board, move, value), san + " wins at least " + value);
+    assertFalse(StaticExchange.isAtLeast(board, move, value + 1), san + " wins no more than " + value);
+  }
+
+  @Test
+  void undefendedPawn() {
+    assertExchange("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "Rxe5", 100);
+  }
+
+  @Test
+  void knightLostForPawnBehindBatteries() {
+    assertExchange("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "Nxe5", 100 - 320);
+  }
+
+  @Test
+  void evenPawnTrade() {
+    assertExchange("4k3/8/2p5/3p4/4P3/8/8/4K3 w - - 0 1", "exd5", 0);
+  }
+
+  @Test
+  void queenTakesDefendedPawn() {
+    assertExchange("4k3/8/2p5/3p4/4P3/8/8/3QK3 w - - 0 1", "Qxd5", 100 - 900 + 100);
+  }
+
+  @Test
+  void rookBehindRookJoinsTheExchange() {
+    assertExchange("3r2k1/8/8/3p4/8/8/3R4/3R2K1 w - - 0 1", "Rxd5", 100);
+  }
+
+  @Test
+  void enPassant() {
+    assertExchange("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "exd6", 100);
+    assertExchange("4k3/2p5/8/3pP3/8/8/8/4K3 w - d6 0 1", "exd6", 0);
+  }
+
+  @Test
+  void promotion() {
+    assertExchange("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b8=Q", 800);
+    assertExchange("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "bxa8=Q", 500 + 800);
+    assertExchange("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1", "a8=Q", -100);
+  }
+}
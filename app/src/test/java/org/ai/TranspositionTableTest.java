@@ -0,0 +1,115 @@
+package org.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+  // keys share a bucket when their upper halves are equal
+  private static final long KEY = 0x1234_5678_0000_0001L;
+  private static final long SAME_BUCKET = 0x1234_5678_0000_0002L;
+
+  @Test
+  void storedFieldsRoundTrip() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(KEY, 0xABCDEF, -1234, 17, TranspositionTable.LOWER);
+    long data = table.probe(KEY);
+    assertEquals(0xABCDEF, TranspositionTable.move(data));
+    assertEquals(-1234, TranspositionTable.score(data));
+    assertEquals(17, TranspositionTable.depth(data));
+    assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+  }
+
+  @Test
+  void otherKeyInTheBucketMisses() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(KEY, 1, 10, 3, TranspositionTable.EXACT);
+    assertEquals(0, table.probe(SAME_BUCKET));
+    assertEquals(0, table.probe(~KEY));
+  }
+
+  @Test
+  void storeWithoutMoveKeepsTheKnownMove() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(KEY, 42, 10, 3, TranspositionTable.EXACT);
+    table.store(KEY, 0, -5, 6, TranspositionTable.UPPER);
+    long data = table.probe(KEY);
+    assertEquals(42, TranspositionTable.move(data));
+    assertEquals(-5, TranspositionTable.score(data));
+    assertEquals(6, TranspositionTable.depth(data));
+  }
+
+  @Test
+  void clearEmptiesTheTable() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(KEY, 1, 10, 3, TranspositionTable.EXACT);
+    table.clear();
+    assertEquals(0, table.probe(KEY));
+  }
+
+  @Test
+  void overfilledTableNeverAnswersForAnotherKey() {
+    TranspositionTable table = new TranspositionTable(1);
+    Random random = new Random(7);
+    long[] keys = new long[table.capacity() * 4];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextLong();
+      table.store(keys[i], i & 0xFFFFFF, i & 0x7FFF, 1, TranspositionTable.EXACT);
+    }
+    int hits = 0;
+    for (int i = 0; i < keys.length; i++) {
+      long data = table.probe(keys[i]);
+      if (data != 0) {
+        assertEquals(i & 0xFFFFFF, TranspositionTable.move(data));
+        hits++;
+      }
+    }
+    assertTrue(hits > 0 && hits <= table.capacity());
+  }
+
+  @Test
+  void tornEntriesReadAsMisses() throws InterruptedException {
+    TranspositionTable table = new TranspositionTable(1);
+    // deep entries fill the rest of the bucket, so both writers keep
+    // replacing the same shallow slot
+    for (int i = 3; i < 6; i++)
+      table.store(KEY + i, 0, 0, 200, TranspositionTable.EXACT);
+    AtomicBoolean done = new AtomicBoolean();
+    Thread first = new Thread(() -> {
+      while (!done.get())
+        table.store(KEY, 1, 100, 1, TranspositionTable.EXACT);
+    });
+    Thread second = new Thread(() -> {
+      while (!done.get())
+        table.store(SAME_BUCKET, 2, -100, 1, TranspositionTable.EXACT);
+    });
+    first.start();
+    second.start();
+    long wrong = 0;
+    long hits = 0;
+    long end = System.nanoTime() + 200_000_000L;
+    while (System.nanoTime() < end) {
+      long data = table.probe(KEY);
+      if (data != 0) {
+        hits++;
+        if (TranspositionTable.move(data) != 1 || TranspositionTable.score(data) != 100)
+          wrong++;
+      }
+      data = table.probe(SAME_BUCKET);
+      if (data != 0) {
+        hits++;
+        if (TranspositionTable.move(data) != 2 || TranspositionTable.score(data) != -100)
+          wrong++;
+      }
+    }
+    done.set(true);
+    first.join();
+    second.join();
+    assertTrue(hits > 0);
+    assertEquals(0, wrong);
+  }
+}
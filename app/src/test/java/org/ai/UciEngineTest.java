@@ -0,0 +1,121 @@
+package org.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.Moves;
+import org.junit.jupiter.api.Test;
+
+class UciEngineTest {
+  private static final String FOOLS_MATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+
+  // runs a whole session and returns its output lines; quit waits for the
+  // last bestmove
+  private static List<String> session(String... commands) throws IOException {
+    String input = "setoption name Hash value 1\n" + String.join("\n", commands) + "\nquit\n";
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new UciEngine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+        new PrintStream(output, true, StandardCharsets.UTF_8)).loop();
+    return output.toString(StandardCharsets.UTF_8).lines().toList();
+  }
+
+  private static List<String> bestMoves(List<String> lines) {
+    return lines.stream().filter(line -> line.startsWith("bestmove ")).toList();
+  }
+
+  // the move of a bestmove line, checked to be legal on the position
+  private static String legalMove(String fen, String line) {
+    String move = line.split(" ")[1];
+    Board board = new Board();
+    Fen.load(board, fen);
+    MoveList legal = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+    for (int i = 0; i < legal.size(); i++) {
+      if (Moves.toString(legal.get(i)).equals(move))
+        return move;
+    }
+    throw new AssertionError("Illegal best move " + line);
+  }
+
+  @Test
+  void identifiesItself() throws IOException {
+    List<String> lines = session("uci", "isready");
+    assertEquals("id name " + UciEngine.NAME, lines.get(0));
+    assertTrue(lines.contains("uciok"));
+    assertEquals("readyok", lines.getLast());
+  }
+
+  @Test
+  void searchesThePositionAfterTheMoves() throws IOException {
+    List<String> lines = session("position startpos moves e2e4 e7e5", "go depth 3");
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("info depth 3 ")));
+    List<String> best = bestMoves(lines);
+    assertEquals(1, best.size());
+    legalMove("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2", best.get(0));
+  }
+
+  @Test
+  void stopEndsAnInfiniteSearch() throws IOException {
+    List<String> lines = session("position startpos moves d2d4", "go infinite", "stop");
+    List<String> best = bestMoves(lines);
+    assertEquals(1, best.size());
+    legalMove("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1", best.get(0));
+  }
+
+  @Test
+  void ponderWaitsForPonderhit() throws IOException {
+    List<String> lines = session("position startpos", "go ponder depth 2", "ponderhit", "isready");
+    assertEquals(1, bestMoves(lines).size());
+    legalMove(Fen.START_POSITION, bestMoves(lines).get(0));
+  }
+
+  @Test
+  void matedPositionAnswersAtOnce() throws IOException {
+    List<String> lines = session("position fen " + FOOLS_MATE, "go depth 4");
+    assertEquals(List.of("bestmove 0000"), bestMoves(lines));
+  }
+
+  @Test
+  void movesPastARepetitionArePlayed() throws IOException {
+    // the knights come home three times, a threefold repetition, and the
+    // game goes on
+    List<String> lines = session("position startpos moves g1f3 g8f6 f3g1 f6g8 g1f3 g8f6 f3g1 f6g8 g1f3 g8f6"
+        + " f3g1 f6g8 e2e4", "go depth 2");
+    assertTrue(lines.stream().noneMatch(line -> line.startsWith("info string")));
+    legalMove("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 7", bestMoves(lines).get(0));
+  }
+
+  @Test
+  void positionsExtendTheLastOne() throws IOException {
+    List<String> lines = session("position startpos moves e2e4", "position startpos moves e2e4 c7c5 g1f3",
+        "go depth 2");
+    legalMove("rnbqkbnr/pp1ppppp/8/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2", bestMoves(lines).get(0));
+  }
+
+  @Test
+  void illegalMovesAreReported() throws IOException {
+    List<String> lines = session("position startpos moves e2e5", "isready");
+    assertTrue(lines.contains("info string illegal move e2e5"));
+    assertEquals("readyok", lines.getLast());
+  }
+
+  @Test
+  void allocatesAShareOfTheClock() {
+    assertEquals(2000, UciEngine.allocate(60_000, 0, 0));
+    assertEquals(10_750, UciEngine.allocate(60_000, 1000, 6));
+    assertNotEquals(0, UciEngine.allocate(20, 0, 1));
+    assertTrue(UciEngine.allocate(1000, 0, 1) <= 1000 - 30);
+  }
+}
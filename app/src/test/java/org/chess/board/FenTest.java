@@ -0,0 +1,101 @@
+package org.chess.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.chess.Game;
+import org.chess.perft.PerftPosition;
+import org.chess.players.Player;
+import org.chess.players.PlayerType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class FenTest {
+  private static String roundTrip(String fen) {
+    Board board = new Board();
+    Fen.Counters counters = Fen.load(board, fen);
+    return Fen.toFen(board, counters);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+      "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+      "r3k2r/8/8/8/8/8/8/R3K2R b Kq - 37 112",
+      "8/8/8/8/8/8/8/K6k w - - 99 200",
+      "4k3/8/8/8/8/8/8/4K2R w K - 0 1" })
+  void writesBackWhatItRead(String fen) {
+    assertEquals(fen, roundTrip(fen));
+  }
+
+  @Test
+  void referencePositionsRoundTrip() {
+    for (PerftPosition position : PerftPosition.REFERENCE)
+      assertEquals(position.fen(), roundTrip(position.fen()));
+  }
+
+  @Test
+  void countersAreReturned() {
+    Fen.Counters counters = Fen.load(new Board(), "8/8/8/8/8/8/8/K6k b - - 12 34");
+    assertEquals(new Fen.Counters(12, 34), counters);
+  }
+
+  @Test
+  void trailingFieldsMayBeLeftOut() {
+    assertEquals("8/8/8/8/8/8/8/K6k w - - 0 1", roundTrip("8/8/8/8/8/8/8/K6k w"));
+    assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", roundTrip("8/8/8/8/8/8/8/K6k b - -"));
+  }
+
+  @Test
+  void rightsWithoutTheirPiecesAreDropped() {
+    assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", roundTrip("4k3/8/8/8/8/8/8/4K3 w KQkq - 0 1"));
+  }
+
+  @Test
+  void enPassantSquareIsKeptInTheBoard() {
+    Board board = new Board();
+    Fen.load(board, "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+    assertEquals(Board.square(2, 4), board.getEpSquare());
+    assertEquals(Zobrist.compute(board), board.getKey());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "",
+      "8/8/8/8/8/8/8 w - - 0 1",
+      "8/8/8/8/8/8/8/K6k/8 w - - 0 1",
+      "9/8/8/8/8/8/8/K6k w - - 0 1",
+      "8/8/8/8/8/8/8/K6kp w - - 0 1",
+      "8/8/8/8/8/8/8/K6x w - - 0 1",
+      "8/8/8/8/8/8/8/K6k x - - 0 1",
+      "8/8/8/8/8/8/8/K6k w X - 0 1",
+      "8/8/8/8/8/8/8/K6k w - e4 0 1",
+      "8/8/8/8/8/8/8/K6k w - e3 0 1",
+      "8/8/8/8/8/8/8/K6k b - e6 0 1",
+      "8/8/8/8/8/8/8/K6k w - i6 0 1",
+      "8/8/8/8/8/8/8/K6k w - - x 1",
+      "8/8/8/8/8/8/8/K6k w - - 0 1 extra" })
+  void rejectsInvalidFen(String fen) {
+    assertThrows(IllegalArgumentException.class, () -> Fen.load(new Board(), fen));
+  }
+
+  @Test
+  void undoRestoresTheLoadedPosition() {
+    Game game = new Game(new Player(PlayerType.Human, 1), new Player(PlayerType.Human, 2));
+    String fen = "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+    game.loadFen(fen);
+    long key = game.getPositionKey();
+    MoveList legal = new MoveList();
+    game.generateLegalMoves(legal);
+    int moves = legal.size();
+
+    game.move(game.toMove(San.parse(game.getBoard(), "dxe3")));
+    game.undo();
+
+    assertEquals(fen, game.toFen());
+    assertEquals(key, game.getPositionKey());
+    game.generateLegalMoves(legal);
+    assertEquals(moves, legal.size());
+  }
+}
@@ -0,0 +1,109 @@
+package org.chess.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.chess.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SanTest {
+  private static Board board(String fen) {
+    Board board = new Board();
+    Fen.load(board, fen);
+    return board;
+  }
+
+  // the legal move written in coordinates, as in "b1d2" or "b7a8q"
+  private static int move(Board board, String coordinates) {
+    MoveList legal = new MoveList();
+    MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+    for (int i = 0; i < legal.size(); i++) {
+      if (Moves.toString(legal.get(i)).equals(coordinates))
+        return legal.get(i);
+    }
+    throw new AssertionError("No legal move " + coordinates);
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      // two knights on the first rank: the file tells them apart
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | b1d2 | Nbd2",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | f1d2 | Nfd2",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | f1g3 | Ng3",
+      // two rooks on the a-file: the rank does
+      "4k3/8/8/R7/8/8/8/R6K w - - 0 1 | a1a3 | R1a3",
+      "4k3/8/8/R7/8/8/8/R6K w - - 0 1 | a5a3 | R5a3",
+      // one queen shares the file and another the rank: the full square
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | h4e1 | Qh4e1",
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | e4e1 | Qee1",
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | h1e1 | Q1e1",
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b7b8q | b8=Q+",
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b7b8n | b8=N",
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b7a8q | bxa8=Q+",
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b7a8n | bxa8=N",
+      "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1 | e1g1 | O-O",
+      "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1 | e1c1 | O-O-O",
+      "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1 | e8g8 | O-O",
+      "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1 | e8c8 | O-O-O",
+      "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4 | h5f7 | Qxf7#",
+      "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4 | h5e5 | Qxe5+",
+      "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4 | c4f7 | Bxf7+",
+      "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3 | e5f6 | exf6" })
+  void writesAndReadsBack(String fen, String coordinates, String san) {
+    Board board = board(fen);
+    int move = move(board, coordinates);
+    String before = Fen.toFen(board, Fen.Counters.INITIAL);
+    assertEquals(san, San.toSan(board, move));
+    assertEquals(before, Fen.toFen(board, Fen.Counters.INITIAL));
+    assertEquals(move, San.parse(board, san));
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | Nd2",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | N1d2",
+      "4k3/8/8/R7/8/8/8/R6K w - - 0 1 | Ra3",
+      "4k3/8/8/R7/8/8/8/R6K w - - 0 1 | Raa3",
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | Qe1",
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | Qhe1",
+      "2k5/8/8/8/4Q2Q/8/8/K6Q w - - 0 1 | Q4e1" })
+  void rejectsAmbiguousMoves(String fen, String san) {
+    assertEquals(Moves.NONE, San.parse(board(fen), san));
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b8",
+      "r6k/1P6/8/8/8/8/8/2K5 w - - 0 1 | b8=K",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | O-O",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | Nd3",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | Ni2",
+      "4k3/8/8/8/8/8/8/1N3N1K w - - 0 1 | N" })
+  void rejectsIllegalMoves(String fen, String san) {
+    assertEquals(Moves.NONE, San.parse(board(fen), san));
+  }
+
+  @Test
+  void readsLooseNotation() {
+    Board board = board("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+    assertEquals(move(board, "e1g1"), San.parse(board, "0-0"));
+    assertEquals(move(board, "e1c1"), San.parse(board, "O-O-O!?"));
+    board = board("r6k/1P6/8/8/8/8/8/2K5 w - - 0 1");
+    assertEquals(move(board, "b7b8q"), San.parse(board, "b8Q"));
+    assertEquals(move(board, "b7a8n"), San.parse(board, "bxa8=N"));
+  }
+
+  @Test
+  void everyLegalMoveReadsBack() {
+    for (PerftPosition position : PerftPosition.REFERENCE) {
+      Board board = board(position.fen());
+      MoveList legal = new MoveList();
+      MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+      for (int i = 0; i < legal.size(); i++) {
+        String san = San.toSan(board, legal.get(i), legal);
+        assertEquals(legal.get(i), San.parse(san, legal), san);
+      }
+    }
+  }
+}
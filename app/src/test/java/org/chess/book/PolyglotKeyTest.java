@@ -0,0 +1,63 @@
+package org.chess.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.MoveGenerator;
+import org.chess.board.MoveList;
+import org.chess.board.San;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reference keys from the Polyglot book format description.
+ */
+class PolyglotKeyTest {
+  private static long keyAfter(String... moves) {
+    Board board = new Board();
+    Fen.load(board, Fen.START_POSITION);
+    MoveList legal = new MoveList();
+    for (String san : moves) {
+      legal.clear();
+      MoveGenerator.generateLegal(board, board.getSideToMove(), legal);
+      board.makeMove(San.parse(san, legal));
+    }
+    return PolyglotKey.of(board);
+  }
+
+  @Test
+  void startPosition() {
+    assertEquals(0x463b96181691fc9cL, keyAfter());
+  }
+
+  @Test
+  void afterE4() {
+    assertEquals(0x823c9b50fd114196L, keyAfter("e4"));
+  }
+
+  @Test
+  void enPassantFileOnlyWhenCapturable() {
+    assertEquals(0x0756b94461c50fb0L, keyAfter("e4", "d5"));
+    assertEquals(0x662fafb965db29d4L, keyAfter("e4", "d5", "e5"));
+    assertEquals(0x22a48b5a8e47ff78L, keyAfter("e4", "d5", "e5", "f5"));
+  }
+
+  @Test
+  void castlingRightsLostByKingMoves() {
+    assertEquals(0x652a607ca3f242c1L, keyAfter("e4", "d5", "e5", "f5", "Ke2"));
+    assertEquals(0x00fdd303c946bdd9L, keyAfter("e4", "d5", "e5", "f5", "Ke2", "Kf7"));
+  }
+
+  @Test
+  void castlingRightLostByRookMove() {
+    assertEquals(0x3c8123ea7b067637L, keyAfter("a4", "b5", "h4", "b4", "c4"));
+    assertEquals(0x5c3f9b829b279560L, keyAfter("a4", "b5", "h4", "b4", "c4", "bxc3", "Ra3"));
+  }
+
+  @Test
+  void loadedFromFen() {
+    Board board = new Board();
+    Fen.load(board, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+    assertEquals(0x823c9b50fd114196L, PolyglotKey.of(board));
+  }
+}
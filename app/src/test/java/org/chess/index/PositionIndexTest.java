@@ -0,0 +1,138 @@
+package org.chess.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.Moves;
+import org.chess.board.San;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PositionIndexTest {
+  // the fourth game has an illegal move and is skipped, keeping its id; the
+  // fifth reaches the first game's last position by another order
+  private static final String ARCHIVE = """
+      [Event "one"]
+
+      1. e4 e5 2. Nf3 Nc6 1-0
+
+      [Event "two"]
+
+      1. e4 c5 2. Nf3 1/2-1/2
+
+      [Event "three"]
+
+      1. d4 d5 *
+
+      [Event "four"]
+
+      1. e4 e5 2. Ke3 *
+
+      [Event "five"]
+
+      1. Nf3 Nc6 2. e4 e5 0-1
+      """;
+
+  @TempDir
+  static Path dir;
+  static PositionIndexBuilder.Stats stats;
+  static PositionIndex index;
+
+  @BeforeAll
+  static void build() throws IOException {
+    Path pgn = dir.resolve("games.pgn");
+    Files.writeString(pgn, ARCHIVE);
+    // four records per run: the records are spread over five run files
+    stats = new PositionIndexBuilder(4).build(pgn, dir.resolve("runs.idx"));
+    index = new PositionIndex(dir.resolve("runs.idx"));
+  }
+
+  private static Board play(String... sans) {
+    Board board = new Board();
+    Fen.load(board, Fen.START_POSITION);
+    for (String san : sans)
+      board.makeMove(San.parse(board, san));
+    return board;
+  }
+
+  @Test
+  void countsGamesPositionsAndRuns() {
+    assertEquals(4, stats.games());
+    assertEquals(1, stats.errors());
+    assertEquals(17, stats.entries());
+    assertEquals(5, stats.runs());
+    assertEquals(17, index.size());
+  }
+
+  @Test
+  void mergedRunsMatchASingleBuffer() throws IOException {
+    PositionIndexBuilder.Stats single = new PositionIndexBuilder(1024).build(dir.resolve("games.pgn"),
+        dir.resolve("single.idx"));
+    assertEquals(0, single.runs());
+    assertArrayEquals(Files.readAllBytes(dir.resolve("single.idx")), Files.readAllBytes(dir.resolve("runs.idx")));
+  }
+
+  @Test
+  void startPositionLeadsToEveryGame() {
+    Board board = play();
+    assertEquals(4, index.count(board.getKey()));
+    List<PositionIndex.MoveCount> moves = index.nextMoves(board);
+    assertEquals(3, moves.size());
+    assertEquals("e4", San.toSan(board, moves.get(0).move()));
+    assertEquals(2, moves.get(0).games());
+    assertEquals(1, moves.get(1).games());
+    assertEquals(1, moves.get(2).games());
+  }
+
+  @Test
+  void entriesAreInGameOrder() {
+    Board board = play("e4");
+    List<IndexEntry> entries = index.entries(board, 10);
+    assertEquals(2, entries.size());
+    assertEquals(0, entries.get(0).gameId());
+    assertEquals(1, entries.get(1).gameId());
+    assertEquals(1, entries.get(0).ply());
+    assertEquals("e5", San.toSan(board, entries.get(0).move()));
+    assertEquals("c5", San.toSan(board, entries.get(1).move()));
+    assertEquals(1, index.entries(board, 1).size());
+  }
+
+  @Test
+  void transpositionsShareTheirPosition() {
+    Board board = play("e4", "e5", "Nf3", "Nc6");
+    assertEquals(board.getKey(), play("Nf3", "Nc6", "e4", "e5").getKey());
+    List<IndexEntry> entries = index.entries(board, 10);
+    assertEquals(2, entries.size());
+    // the skipped game keeps id 3
+    assertEquals(0, entries.get(0).gameId());
+    assertEquals(4, entries.get(1).gameId());
+    assertEquals(Moves.NONE, entries.get(0).move());
+    // both games ended there, so no move was played from it
+    assertTrue(index.nextMoves(board).isEmpty());
+  }
+
+  @Test
+  void unknownPositionsAreNotFound() {
+    Board board = play("e4", "e5", "Ke2");
+    assertEquals(0, index.count(board.getKey()));
+    assertTrue(index.entries(board, 10).isEmpty());
+    assertTrue(index.nextMoves(board).isEmpty());
+  }
+
+  @Test
+  void rejectsOtherFiles() throws IOException {
+    Path other = dir.resolve("other.idx");
+    Files.write(other, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+    assertThrows(IOException.class, () -> new PositionIndex(other));
+  }
+}
@@ -0,0 +1,56 @@
+package org.chess.perft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.stream.Stream;
+
+import org.chess.Game;
+import org.chess.players.Player;
+import org.chess.players.PlayerType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * The reference perft counts, to the deepest depth that stays under a million
+ * nodes so the suite runs in seconds. {@code --perft} covers the full depths.
+ */
+class PerftTest {
+  private static final long MAX_NODES = 1_000_000;
+
+  static Stream<PerftPosition> positions() {
+    return PerftPosition.REFERENCE.stream();
+  }
+
+  private static Game load(String fen) {
+    Game game = new Game(new Player(PlayerType.Human, 1), new Player(PlayerType.Human, 2));
+    game.loadFen(fen);
+    return game;
+  }
+
+  @ParameterizedTest
+  @MethodSource("positions")
+  void matchesReferenceCounts(PerftPosition position) {
+    Game game = load(position.fen());
+    for (int depth = 1; depth <= position.maxDepth() && position.nodes()[depth - 1] <= MAX_NODES; depth++)
+      assertEquals(position.nodes()[depth - 1], Perft.perft(game, depth), position.name() + " depth " + depth);
+  }
+
+  @Test
+  void cacheAndThreadsGiveTheSameCounts() {
+    PerftPosition kiwipete = PerftPosition.REFERENCE.get(1);
+    Game game = load(kiwipete.fen());
+    assertEquals(kiwipete.nodes()[2], Perft.perft(game, 3, new PerftCache(1)));
+    assertEquals(kiwipete.nodes()[2], Perft.divide(game, 3, 2, new PerftCache(1)).nodes());
+  }
+
+  @Test
+  void leavesThePositionUnchanged() {
+    Game game = load(PerftPosition.REFERENCE.get(3).fen());
+    String fen = game.toFen();
+    long key = game.getPositionKey();
+    Perft.perft(game, 3);
+    assertEquals(fen, game.toFen());
+    assertEquals(key, game.getPositionKey());
+  }
+}
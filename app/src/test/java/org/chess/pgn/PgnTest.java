@@ -0,0 +1,144 @@
+package org.chess.pgn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PgnTest {
+  private static final String ANNOTATED = """
+      % exported by hand
+      [Event "Casual \\"blitz\\""]
+      [Site "?"]
+      [Date "2024.01.02"]
+      [Round "-"]
+      [White "Anderssen"]
+      [Black "Kieseritzky"]
+      [Result "1-0"]
+      [ECO "C33"]
+
+      1. e4 {the king's pawn} e5 2. f4 $1 exf4 3. Bc4 Qh4+ 4. Kf1 b5!? (4... Nf6 5. Nc3
+      (5. e5 {sharper} d5) c6) 5. Bxb5 Nf6 6. Nf3 Qh6 ; a line comment
+      7. d3 Nh5 8. Nh4 Qg5 9. Nf5 c6 10. g4 Nf6 11. Rg1 $2 cxb5 12. h4 Qg6 13. h5 Qg5
+      14. Qf3 Ng8 15. Bxf4 Qf6 16. Nc3 Bc5 17. Nd5 Qxb2 18. Bd6 Bxg1 {?} 19. e5 Qxa1+
+      20. Ke2 Na6 21. Nxg7+ Kd8 22. Qf6+ Nxf6 23. Be7# 1-0
+      """;
+
+  private static List<PgnGame> readAll(String pgn) throws IOException {
+    ArrayList<PgnGame> games = new ArrayList<>();
+    try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+      for (PgnGame game = reader.next(); game != null; game = reader.next())
+        games.add(game);
+    }
+    return games;
+  }
+
+  private static PgnGame read(String pgn) throws IOException {
+    List<PgnGame> games = readAll(pgn);
+    assertEquals(1, games.size());
+    return games.get(0);
+  }
+
+  @Test
+  void skipsCommentsVariationsAndGlyphs() throws IOException {
+    PgnGame game = read(ANNOTATED);
+    assertEquals("1-0", game.result());
+    assertEquals("Casual \"blitz\"", game.tag("Event"));
+    assertEquals("C33", game.tag("ECO"));
+    assertEquals(45, game.moves().size());
+    assertEquals(List.of("e4", "e5", "f4", "exf4", "Bc4", "Qh4+", "Kf1", "b5", "Bxb5", "Nf6"),
+        game.moves().subList(0, 10));
+    assertEquals("Be7#", game.moves().get(44));
+    assertEquals(45, PgnImport.replay(game).length);
+  }
+
+  @Test
+  void readWriteReadKeepsTheGame() throws IOException {
+    PgnGame game = read(ANNOTATED);
+    String written = PgnWriter.write(game);
+    PgnGame reread = read(written);
+    assertEquals(game.tags(), reread.tags());
+    assertEquals(game.moves(), reread.moves());
+    assertEquals(game.result(), reread.result());
+    assertEquals(written, PgnWriter.write(reread));
+    assertArrayEquals(PgnImport.replay(game), PgnImport.replay(reread));
+  }
+
+  @Test
+  void writesExportFormat() throws IOException {
+    String written = PgnWriter.write(read(ANNOTATED));
+    assertTrue(written.startsWith("[Event \"Casual \\\"blitz\\\"\"]\n[Site \"?\"]\n[Date \"2024.01.02\"]\n"));
+    assertTrue(written.contains("[Result \"1-0\"]\n[ECO \"C33\"]\n\n1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ 4. Kf1 b5 5. Bxb5"));
+    assertTrue(written.endsWith("23. Be7# 1-0\n\n"));
+    for (String line : written.split("\n"))
+      assertTrue(line.length() < 80, line);
+    String movetext = written.substring(written.indexOf("\n\n"));
+    for (char mark : "{}()$;!?".toCharArray())
+      assertFalse(movetext.indexOf(mark) >= 0, movetext);
+  }
+
+  @Test
+  void fillsTheSevenTagRoster() throws IOException {
+    PgnGame game = new PgnGame(Map.of(), List.of("d4", "d5"), PgnGame.UNFINISHED);
+    String written = PgnWriter.write(game);
+    assertEquals("""
+        [Event "?"]
+        [Site "?"]
+        [Date "????.??.??"]
+        [Round "?"]
+        [White "?"]
+        [Black "?"]
+        [Result "*"]
+
+        1. d4 d5 *
+
+        """, written);
+    assertEquals(game.moves(), read(written).moves());
+  }
+
+  @Test
+  void roundTripsFromAFenWithBlackToMove() throws IOException {
+    LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    tags.put("SetUp", "1");
+    tags.put("FEN", "4k3/8/8/8/8/8/4P3/4K3 b - - 0 41");
+    PgnGame game = new PgnGame(tags, List.of("Kd7", "e4", "Ke6"), PgnGame.UNFINISHED);
+    String written = PgnWriter.write(game);
+    assertTrue(written.contains("\n41... Kd7 42. e4 Ke6 *\n"), written);
+    PgnGame reread = read(written);
+    assertEquals("1", reread.tag("SetUp"));
+    assertEquals(game.startFen(), reread.startFen());
+    assertEquals(game.moves(), reread.moves());
+    assertEquals(written, PgnWriter.write(reread));
+    assertEquals(3, PgnImport.replay(reread).length);
+  }
+
+  @Test
+  void readsGameAfterGame() throws IOException {
+    String second = "[Event \"second\"]\n\n1.d4 Nf6 2.c4 e6 1/2-1/2\n";
+    List<PgnGame> games = readAll(ANNOTATED + "\n" + second + "\n1. e4 e5");
+    assertEquals(3, games.size());
+    assertEquals(List.of("d4", "Nf6", "c4", "e6"), games.get(1).moves());
+    assertEquals("1/2-1/2", games.get(1).result());
+    assertEquals(List.of("e4", "e5"), games.get(2).moves());
+    assertEquals(PgnGame.UNFINISHED, games.get(2).result());
+    assertNull(new PgnReader(new StringReader(" \n")).next());
+  }
+
+  @Test
+  void replayRejectsIllegalMoves() throws IOException {
+    PgnGame game = read("1. e4 e5 2. Ke3 *");
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PgnImport.replay(game));
+    assertTrue(e.getMessage().contains("Ke3"));
+  }
+}
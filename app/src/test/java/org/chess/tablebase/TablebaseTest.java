@@ -0,0 +1,115 @@
+package org.chess.tablebase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.chess.board.Board;
+import org.chess.board.Fen;
+import org.chess.board.Moves;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TablebaseTest {
+  @TempDir
+  static Path dir;
+  static Tablebase tablebase;
+
+  @BeforeAll
+  static void generate() throws IOException {
+    tablebase = Tablebase.generate(dir, List.of("KQvK", "KRvK"), null);
+  }
+
+  private static Board board(String fen) {
+    Board board = new Board();
+    Fen.load(board, fen);
+    return board;
+  }
+
+  // plies of the longest forced mate by the side to move; the file is a
+  // 16-byte header and one value per table index
+  private static int longestMate(String name) throws IOException {
+    byte[] file = Files.readAllBytes(dir.resolve(name + Tablebase.EXTENSION));
+    int longest = 0;
+    for (int i = 16; i < file.length; i++) {
+      int value = file[i] & 0xFF;
+      if (Table.isWin(value))
+        longest = Math.max(longest, Table.plies(value));
+    }
+    return longest;
+  }
+
+  @Test
+  void generatesTheRequestedTables() {
+    assertEquals(3, tablebase.maxPieces());
+    assertTrue(tablebase.tableNames().containsAll(List.of("KQvK", "KRvK")));
+  }
+
+  @Test
+  void longestMates() throws IOException {
+    assertEquals(19, longestMate("KQvK"));
+    assertEquals(31, longestMate("KRvK"));
+  }
+
+  @Test
+  void rookWinsInTwentyNinePlies() {
+    Board board = board("8/8/8/4k3/8/8/8/K6R w - - 0 1");
+    int value = tablebase.probe(board);
+    assertTrue(Table.isWin(value));
+    assertEquals(29, Table.plies(value));
+    assertEquals("a1a2", Moves.toString(tablebase.bestMove(board)));
+  }
+
+  @Test
+  void colorsAreMirrored() {
+    int value = tablebase.probe(board("8/8/8/4K3/8/8/8/k6r b - - 0 1"));
+    assertTrue(Table.isWin(value));
+    assertEquals(29, Table.plies(value));
+  }
+
+  @Test
+  void bestMoveKeepsTheFastestMate() {
+    Board board = board("k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+    int value = tablebase.probe(board);
+    assertTrue(Table.isWin(value));
+    assertEquals(1, Table.plies(value));
+    board.makeMove(tablebase.bestMove(board));
+    value = tablebase.probe(board);
+    assertTrue(Table.isLoss(value));
+    assertEquals(0, Table.plies(value));
+  }
+
+  @Test
+  void defendingSideDelaysTheMate() {
+    Board board = board("8/8/8/4k3/8/8/8/K6R w - - 0 1");
+    board.makeMove(tablebase.bestMove(board));
+    int value = tablebase.probe(board);
+    assertTrue(Table.isLoss(value));
+    assertEquals(28, Table.plies(value));
+    board.makeMove(tablebase.bestMove(board));
+    assertEquals(27, Table.plies(tablebase.probe(board)));
+  }
+
+  @Test
+  void mateStalemateAndCaptureAreScored() {
+    int mated = tablebase.probe(board("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"));
+    assertTrue(Table.isLoss(mated));
+    assertEquals(0, Table.plies(mated));
+    assertEquals(Table.DRAW, tablebase.probe(board("k7/8/1Q6/8/8/8/8/K7 b - - 0 1")));
+    // the king takes the undefended rook
+    assertEquals(Table.DRAW, tablebase.probe(board("8/8/8/8/8/8/6kR/K7 b - - 0 1")));
+  }
+
+  @Test
+  void positionsOutsideTheTablesAreNotFound() {
+    assertEquals(Tablebase.NOT_FOUND, tablebase.probe(board(Fen.START_POSITION)));
+    assertEquals(Tablebase.NOT_FOUND, tablebase.probe(board("4k3/8/8/8/8/8/8/4K2R w K - 0 1")));
+    assertEquals(Tablebase.NOT_FOUND, tablebase.probe(board("4k3/8/8/8/8/8/8/4KB2 w - - 0 1")));
+    assertEquals(Moves.NONE, tablebase.bestMove(board(Fen.START_POSITION)));
+  }
+}
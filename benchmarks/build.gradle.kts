@@ -0,0 +1,40 @@
+/*
+ * JMH benchmarks for the rules engine in the app project.
+ *
+ * Run with: gradle :benchmarks:jmh
+ * Results are written to benchmarks/build/results/jmh/results.json.
+ */
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.asProvider()
+    benchmarkMode = listOf("thrpt")
+    timeUnit = "s"
+    fork = 1
+    warmupIterations = 3
+    warmup = "1s"
+    iterations = 5
+    timeOnIteration = "2s"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    // Narrow the run with -PjmhIncludes=GameBenchmark.getAllLegalMoves
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
@@ -0,0 +1,29 @@
+package org.bench;
+
+import java.util.Map;
+
+import org.chess.board.Fen;
+
+/**
+ * Fixed corpus of positions the benchmarks run over, keyed by the names used
+ * in the {@code @Param} lists.
+ */
+public final class BenchmarkPositions {
+  public static final Map<String, String> FENS = Map.of(
+      "opening", Fen.START_POSITION,
+      "italian", "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+      "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+      "middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+      "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+      "rookEndgame", "8/8/4k3/3r4/8/3K4/3P4/4R3 w - - 0 1");
+
+  private BenchmarkPositions() {
+  }
+
+  public static String fen(String name) {
+    String fen = FENS.get(name);
+    if (fen == null)
+      throw new IllegalArgumentException("Unknown benchmark position: " + name);
+    return fen;
+  }
+}
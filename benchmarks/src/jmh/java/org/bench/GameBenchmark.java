@@ -0,0 +1,191 @@
+package org.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.ai.Evaluator;
+import org.chess.Game;
+import org.chess.board.Attacks;
+import org.chess.board.Board;
+import org.chess.board.MoveList;
+import org.chess.board.PositionCache;
+import org.chess.board.Zobrist;
+import org.chess.players.Player;
+import org.chess.utils.Coords;
+import org.chess.utils.Move;
+import org.chess.utils.SpecialEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the {@link Game} rules engine entry points. Run with the gc
+ * profiler (the default in build.gradle.kts) to get allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameBenchmark {
+  @Param({ "opening", "italian", "kiwipete", "middlegame", "endgame", "rookEndgame" })
+  public String position;
+
+  private Game game;
+  private int playerId;
+  private Coords[] ownPieces;
+  private ArrayList<Move> legalMoves;
+  private Move quietMove;
+  private int[] encodedMoves;
+  private final MoveList moveList = new MoveList();
+  private String fen;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // every Game creates two players and the player registry only allows two
+    Player.resetPlayers();
+    game = new Game();
+    fen = BenchmarkPositions.fen(position);
+    game.loadFen(fen);
+    playerId = game.getBoard().getSideToMove() + 1;
+    ownPieces = game.getPlayerPieces(playerId).keySet().toArray(new Coords[0]);
+    legalMoves = game.getAllLegalMoves(playerId);
+    game.generateLegalMoves(moveList);
+    encodedMoves = moveList.toArray();
+    for (Move move : legalMoves) {
+      if (move.sEvent() != SpecialEvent.Coronation) {
+        quietMove = move;
+        break;
+      }
+    }
+  }
+
+  @Benchmark
+  public void getValidMovesOf(Blackhole bh) {
+    for (Coords coords : ownPieces)
+      bh.consume(game.getValidMovesOf(coords));
+  }
+
+  @Benchmark
+  public void getLegalMovesOf(Blackhole bh) {
+    for (Coords coords : ownPieces)
+      bh.consume(game.getLegalMovesOf(coords));
+  }
+
+  @Benchmark
+  public ArrayList<Move> getAllLegalMoves() {
+    return game.getAllLegalMoves(playerId);
+  }
+
+  @Benchmark
+  public int generateLegalMoves() {
+    game.generateLegalMoves(moveList);
+    return moveList.size();
+  }
+
+  /**
+   * The attack test behind the check flag, which {@link Game} caches.
+   */
+  @Benchmark
+  public boolean isKingInCheck() {
+    Board board = game.getBoard();
+    int side = playerId - 1;
+    return Attacks.isSquareAttacked(board, board.kingSquare(side), side ^ 1);
+  }
+
+  @Benchmark
+  public boolean isKingInCheckCached() {
+    return game.isKingInCheck(playerId);
+  }
+
+  @Benchmark
+  public void isSquareAttacked(Blackhole bh) {
+    int enemyId = playerId == 1 ? 2 : 1;
+    for (int sq = 0; sq < Board.SQUARES; sq++)
+      bh.consume(game.isSquareAttacked(Board.coords(sq), enemyId));
+  }
+
+  /**
+   * The legal move generation, check test and material count behind a
+   * verdict, comparable with the figures from before {@link Game} cached it.
+   * A fresh cache has no answers, so every call computes the verdict.
+   */
+  @Benchmark
+  public boolean isCheckmate() {
+    return new PositionCache(game.getBoard()).verdict(playerId - 1) == PositionCache.Verdict.CHECKMATE;
+  }
+
+  @Benchmark
+  public boolean isStalemate() {
+    PositionCache.Verdict verdict = new PositionCache(game.getBoard()).verdict(playerId - 1);
+    return verdict == PositionCache.Verdict.STALEMATE || verdict == PositionCache.Verdict.INSUFFICIENT_MATERIAL;
+  }
+
+  @Benchmark
+  public boolean isCheckmateCached() {
+    return game.isCheckmate(playerId);
+  }
+
+  @Benchmark
+  public boolean isStalemateCached() {
+    return game.isStalemate(playerId);
+  }
+
+  @Benchmark
+  public long getPositionKey() {
+    return game.getPositionKey();
+  }
+
+  @Benchmark
+  public long computePositionKey() {
+    return Zobrist.compute(game.getBoard());
+  }
+
+  @Benchmark
+  public int evaluate() {
+    return Evaluator.evaluate(game.getBoard());
+  }
+
+  @Benchmark
+  public int evaluateFull() {
+    return Evaluator.evaluateFull(game.getBoard());
+  }
+
+  @Benchmark
+  public Board loadFen() {
+    game.loadFen(fen);
+    return game.getBoard();
+  }
+
+  @Benchmark
+  public String toFen() {
+    return game.toFen();
+  }
+
+  @Benchmark
+  public void moveUndo() {
+    game.move(quietMove);
+    game.undo();
+  }
+
+  @Benchmark
+  public void makeUnmakeMove() {
+    for (Move move : legalMoves) {
+      game.makeMove(move, null);
+      game.unmakeMove();
+    }
+  }
+
+  @Benchmark
+  public void makeUnmakeEncodedMove() {
+    for (int move : encodedMoves) {
+      game.makeMove(move);
+      game.unmakeMove();
+    }
+  }
+}
@@ -11,4 +11,4 @@ plugins {
 }
 
 rootProject.name = "chess_solver"
-include("app")
+include("app", "benchmarks")